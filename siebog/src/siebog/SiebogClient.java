@@ -26,6 +26,7 @@ import org.jboss.ejb.client.EJBClientConfiguration;
 import org.jboss.ejb.client.EJBClientContext;
 import org.jboss.ejb.client.PropertiesBasedEJBClientConfiguration;
 import org.jboss.ejb.client.remoting.ConfigBasedEJBClientContextSelector;
+import siebog.utils.ObjectFactory;
 
 /**
  * Helper class for client initialization.
@@ -69,6 +70,8 @@ public class SiebogClient {
 		EJBClientConfiguration cc = new PropertiesBasedEJBClientConfiguration(p);
 		ContextSelector<EJBClientContext> selector = new ConfigBasedEJBClientContextSelector(cc);
 		EJBClientContext.setSelector(selector);
+		// proxies obtained before belong to the previous client context
+		ObjectFactory.invalidateAll();
 		connected = true;
 	}
 
@@ -38,6 +38,9 @@ public final class AID implements Serializable {
 	private final String host;
 	private final String str; // string representation
 	private final AgentClass agClass;
+	// derived, so not serialized
+	private transient int hash;
+	private transient String json;
 	public static final String HOST_NAME = "xjaf"; // TODO Get cluster/host name.
 	public static final AID EXTERNAL_CLIENT = new AID("", "", new AgentClass("", ""));
 
@@ -80,7 +83,10 @@ public final class AID implements Serializable {
 
 	@Override
 	public int hashCode() {
-		return str.hashCode();
+		int h = hash;
+		if (h == 0)
+			hash = h = str.hashCode();
+		return h;
 	}
 
 	@Override
@@ -92,11 +98,18 @@ public final class AID implements Serializable {
 		if (getClass() != obj.getClass())
 			return false;
 		AID other = (AID) obj;
-		return str.equals(other.str);
+		return hashCode() == other.hashCode() && str.equals(other.str);
 	}
 
 	@Override
 	public String toString() {
+		String s = json;
+		if (s == null)
+			json = s = toJson();
+		return s;
+	}
+
+	private String toJson() {
 		JSONObject obj = new JSONObject();
 		try {
 			obj.put("name", name);
@@ -125,4 +138,9 @@ public final class AID implements Serializable {
 	public String getStr() {
 		return str;
 	}
+
+	// deserialized copies of running agents' AIDs share the node's canonical instance, see AIDPool
+	private Object readResolve() {
+		return AIDPool.canonical(this);
+	}
 }
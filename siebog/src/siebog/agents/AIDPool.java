@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.agents;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Node-local pool of canonical {@link AID} instances, so that the copies of an AID arriving with
+ * each message share one instance, and its cached hash and JSON form.
+ * <p>
+ * Only the AIDs of running agents are interned, by {@link AgentRegistry}, which also releases
+ * them once the agents are stopped. Deserialization and parsing only look up the canonical
+ * instances, so that AIDs of unknown agents do not accumulate in the pool.
+ */
+public abstract class AIDPool {
+	private static final ConcurrentMap<String, AID> byStr = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, AID> byJson = new ConcurrentHashMap<>();
+
+	/**
+	 * @return The canonical instance equal to the given AID. AIDs without an agent class, or with
+	 *         an agent class different from the canonical one, are returned as they are.
+	 */
+	public static AID intern(AID aid) {
+		if (aid == null || aid.getAgClass() == null)
+			return aid;
+		AID canonical = byStr.get(aid.getStr());
+		if (canonical != null)
+			return sameClass(canonical, aid) ? canonical : aid;
+		synchronized (AIDPool.class) {
+			canonical = byStr.get(aid.getStr());
+			if (canonical != null) {
+				if (!sameClass(canonical, aid))
+					return aid;
+			} else {
+				canonical = aid;
+				byStr.put(canonical.getStr(), canonical);
+			}
+			return canonical;
+		}
+	}
+
+	/**
+	 * @return The canonical instance equal to the given AID, or the AID itself if it's not
+	 *         interned.
+	 */
+	public static AID canonical(AID aid) {
+		if (aid == null || aid.getAgClass() == null)
+			return aid;
+		AID canonical = byStr.get(aid.getStr());
+		return canonical != null && sameClass(canonical, aid) ? canonical : aid;
+	}
+
+	/**
+	 * Parses the JSON form of an AID, as returned by {@link AID#toString()}, skipping the parsing
+	 * if the AID is already interned.
+	 */
+	public static AID fromJson(String json) {
+		AID aid = byJson.get(json);
+		if (aid == null) {
+			aid = canonical(new AID(json));
+			if (byStr.get(aid.getStr()) == aid)
+				byJson.putIfAbsent(aid.toString(), aid);
+		}
+		return aid;
+	}
+
+	/**
+	 * Removes the AID from the pool. Any copies still in use keep working, but are no longer
+	 * canonical.
+	 */
+	public static void release(AID aid) {
+		AID canonical = byStr.get(aid.getStr());
+		if (canonical != null && byStr.remove(canonical.getStr(), canonical)) {
+			byJson.remove(canonical.toString(), canonical);
+		}
+	}
+
+	// AID.equals only compares the string forms, but the canonical instance must not replace a
+	// different agent class
+	private static boolean sameClass(AID a, AID b) {
+		AgentClass ca = a.getAgClass();
+		AgentClass cb = b.getAgClass();
+		return ca == cb || (ca.equals(cb) && ca.getPath().equals(cb.getPath()));
+	}
+
+	public static int size() {
+		return byStr.size();
+	}
+}
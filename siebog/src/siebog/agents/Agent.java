@@ -21,6 +21,7 @@
 package siebog.agents;
 
 import java.io.Serializable;
+import java.util.List;
 import siebog.interaction.ACLMessage;
 
 /**
@@ -38,5 +39,25 @@ public interface Agent extends Serializable {
 
 	void handleMessage(ACLMessage msg);
 
+	/**
+	 * Delivers several messages, in the given order, with a single invocation.
+	 */
+	void handleMessages(List<ACLMessage> msgs);
+
 	String ping();
+
+	/**
+	 * @return Idle time in milliseconds after which the agent is passivated, 0 if never.
+	 */
+	long getPassivationTimeout();
+
+	/**
+	 * Takes the compressed snapshot of the agent's state and removes the bean.
+	 */
+	byte[] passivate();
+
+	/**
+	 * Restores the agent from a snapshot taken by {@link #passivate()}, instead of init.
+	 */
+	void activate(AID aid, byte[] snapshot);
 }
@@ -20,7 +20,9 @@
 
 package siebog.agents;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import siebog.utils.ObjectFactory;
 
@@ -112,6 +114,14 @@ public class AgentBuilder {
 		if (name != null) {
 			throw new IllegalStateException("Cannot set the name when creating multiple agents.");
 		}
+		if (!radigost) {
+			Set<String> names = new HashSet<>();
+			while (names.size() < n) {
+				names.add(getRandomName());
+			}
+			AgentManager agm = ObjectFactory.getAgentManager();
+			return new HashSet<>(agm.startServerAgents(agClass, new ArrayList<>(names), args));
+		}
 		Set<AID> set = new HashSet<>();
 		for (int i = 0; i < n; i++) {
 			AID aid = startAgent(getRandomName());
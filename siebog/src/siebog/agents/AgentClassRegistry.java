@@ -0,0 +1,185 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.agents;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.LocalBean;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+import javax.naming.NamingException;
+import javax.naming.event.EventContext;
+import javax.naming.event.NamespaceChangeListener;
+import javax.naming.event.NamingEvent;
+import javax.naming.event.NamingExceptionEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import siebog.utils.ContextFactory;
+import siebog.utils.ObjectFactory;
+
+/**
+ * Deployed agent classes, read from the JNDI tree once and served from memory until a deployment
+ * changes the tree. Where the naming service doesn't report changes, the list is refreshed when
+ * an agent of an unknown class is started, or an agent class can no longer be found.
+ * 
+ * For each agent class, it also remembers whether the agents are stateful or stateless, and so
+ * the JNDI name used to create them.
+ */
+@Singleton
+@LocalBean
+@Lock(LockType.READ)
+public class AgentClassRegistry {
+	private static final Logger LOG = LoggerFactory.getLogger(AgentClassRegistry.class);
+	@Inject
+	private JndiTreeParser jndiTreeParser;
+	private volatile Set<AgentClass> classes;
+	private final Map<AgentClass, String> lookups = new ConcurrentHashMap<>();
+	private EventContext events;
+	private DeploymentListener listener;
+
+	@PostConstruct
+	public void postConstruct() {
+		try {
+			Object exported = ContextFactory.get().lookup(JndiTreeParser.EXP);
+			if (exported instanceof EventContext) {
+				listener = new DeploymentListener();
+				events = (EventContext) exported;
+				events.addNamingListener("", EventContext.SUBTREE_SCOPE, listener);
+			}
+		} catch (NamingException ex) {
+			LOG.debug("JNDI change events are not available.", ex);
+		}
+	}
+
+	@PreDestroy
+	public void preDestroy() {
+		if (events != null) {
+			try {
+				events.removeNamingListener(listener);
+			} catch (NamingException ex) {
+				LOG.debug("Cannot remove the JNDI listener.", ex);
+			}
+		}
+	}
+
+	public List<AgentClass> getAll() {
+		return new ArrayList<>(getClasses());
+	}
+
+	/**
+	 * Forgets all agent classes, they are read from the JNDI tree again on the next access.
+	 */
+	public void refresh() {
+		classes = null;
+		lookups.clear();
+	}
+
+	/**
+	 * Creates a new (or, for stateless agents, gets a pooled) agent instance.
+	 * 
+	 * @throws IllegalStateException if there is no such agent class.
+	 */
+	public Agent newInstance(AgentClass agClass) {
+		String name = lookups.get(agClass);
+		if (name != null) {
+			try {
+				return ObjectFactory.lookup(name, Agent.class);
+			} catch (IllegalStateException ex) {
+				// undeployed, or redeployed with a different type, find out again
+				refresh();
+			}
+		} else if (classes != null && !classes.contains(agClass)) {
+			// probably deployed since the list was read
+			classes = null;
+		}
+		Agent agent;
+		try {
+			name = getLookup(agClass, true);
+			agent = ObjectFactory.lookup(name, Agent.class);
+		} catch (IllegalStateException ex) {
+			name = getLookup(agClass, false);
+			agent = ObjectFactory.lookup(name, Agent.class);
+		}
+		lookups.put(agClass, name);
+		return agent;
+	}
+
+	/**
+	 * @return JNDI name to use for creating instances of the agent class, or null if no instance
+	 *         has been created through {@link #newInstance(AgentClass)} so far.
+	 */
+	public String getLookup(AgentClass agClass) {
+		return lookups.get(agClass);
+	}
+
+	private Set<AgentClass> getClasses() {
+		Set<AgentClass> set = classes;
+		if (set == null) {
+			try {
+				set = new HashSet<>(jndiTreeParser.parse());
+			} catch (NamingException ex) {
+				throw new IllegalStateException(ex);
+			}
+			classes = set;
+		}
+		return set;
+	}
+
+	private static String getLookup(AgentClass agClass, boolean stateful) {
+		if (stateful)
+			return String.format("ejb:/%s//%s!%s?stateful", agClass.getModule(),
+					agClass.getEjbName(), Agent.class.getName());
+		else
+			return String.format("ejb:/%s//%s!%s", agClass.getModule(), agClass.getEjbName(),
+					Agent.class.getName());
+	}
+
+	private class DeploymentListener implements NamespaceChangeListener {
+		@Override
+		public void objectAdded(NamingEvent evt) {
+			refresh();
+		}
+
+		@Override
+		public void objectRemoved(NamingEvent evt) {
+			refresh();
+		}
+
+		@Override
+		public void objectRenamed(NamingEvent evt) {
+			refresh();
+		}
+
+		@Override
+		public void namingExceptionThrown(NamingExceptionEvent evt) {
+			LOG.debug("JNDI listener error.", evt.getException());
+			refresh();
+		}
+	}
+}
@@ -43,6 +43,25 @@ public interface AgentManager extends Serializable {
 
 	AID startServerAgent(AgentClass agClass, String runtimeName, AgentInitArgs args, boolean replace);
 
+	/**
+	 * Starts a number of agents of the same class, with the same arguments, replacing any running
+	 * agents with the same AIDs. Much faster than starting the agents one by one.
+	 * 
+	 * @return AIDs of the started agents, in the order of their runtime names.
+	 */
+	List<AID> startServerAgents(AgentClass agClass, List<String> runtimeNames, AgentInitArgs args);
+
+	/**
+	 * Starts a sharded agent: a single logical AID backed by the given number of agents of the
+	 * same class, which process messages in parallel. Messages to the logical AID go to one of the
+	 * shards, chosen by the key extracted from each message. Shard i gets the runtime name
+	 * runtimeName#i, see {@link ShardGroup#getShardIndex(String)}.
+	 * 
+	 * @return The logical AID.
+	 */
+	AID startShardedAgent(AgentClass agClass, String runtimeName, int shards, ShardKey key,
+			AgentInitArgs args);
+
 	AID startClientAgent(AgentClass agClass, String runtimeName, AgentInitArgs args);
 
 	void stopAgent(AID aid);
@@ -21,14 +21,19 @@
 package siebog.agents;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.ejb.LocalBean;
 import javax.ejb.Remote;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
-import javax.naming.NamingException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
@@ -43,9 +48,15 @@ import javax.ws.rs.core.MediaType;
 import org.infinispan.Cache;
 import org.jboss.resteasy.annotations.Form;
 
+import siebog.interaction.LocalDelivery;
+import siebog.interaction.NodeRouter;
+import siebog.interaction.ShardRouter;
+import siebog.interaction.TopicRegistry;
+import siebog.utils.ExecutorService;
 import siebog.utils.GlobalCache;
 import siebog.utils.LoggerUtil;
 import siebog.utils.ObjectFactory;
+import siebog.utils.RunnableWithParam;
 import siebog.utils.LoggerUtil.SocketMessageType;
 
 /**
@@ -63,10 +74,26 @@ import siebog.utils.LoggerUtil.SocketMessageType;
 @Produces(MediaType.APPLICATION_JSON)
 public class AgentManagerBean implements AgentManager {
 	private static final long serialVersionUID = 1L;
+	// number of parallel tasks used when starting many agents at once
+	private static final int SPAWN_TASKS = Integer.getInteger("siebog.spawn.tasks", 16);
 	//private static final Logger LOG = LoggerFactory.getLogger(AgentManagerBean.class);
 	private Cache<AID, Agent> agents;
 	@Inject
-	private JndiTreeParser jndiTreeParser;
+	private AgentClassRegistry classes;
+	@Inject
+	private LocalDelivery localDelivery;
+	@Inject
+	private TopicRegistry topics;
+	@Inject
+	private NodeRouter router;
+	@Inject
+	private AgentRegistry registry;
+	@Inject
+	private ExecutorService executor;
+	@Inject
+	private ShardRouter shardRouter;
+	@Inject
+	private Passivator passivator;
 
 	@Override
 	public void startServerAgent(AID aid, AgentInitArgs args) {
@@ -75,7 +102,7 @@ public class AgentManagerBean implements AgentManager {
 
 	@Override
 	public void startServerAgent(AID aid, AgentInitArgs args, boolean replace) {
-		if (getCache().containsKey(aid)) {
+		if (registry.isRunning(aid)) {
 			if (!replace) {
 				throw new IllegalStateException("Agent already running: " + aid);
 			}
@@ -84,12 +111,7 @@ public class AgentManagerBean implements AgentManager {
 				LoggerUtil.logAgent(aid, SocketMessageType.REMOVE);
 			}
 		}
-		Agent agent = null;
-		try {
-			agent = ObjectFactory.lookup(getAgentLookup(aid.getAgClass(), true), Agent.class);
-		} catch (IllegalStateException ex) {
-			agent = ObjectFactory.lookup(getAgentLookup(aid.getAgClass(), false), Agent.class);
-		}
+		Agent agent = classes.newInstance(aid.getAgClass());
 		initAgent(agent, aid, args);
 		LoggerUtil.log("Agent " + aid.getStr() + " started. AID: " + aid.toString(), true);
 		if(args == null || args.get("noUIUpdate", "").equals("")) {
@@ -118,6 +140,109 @@ public class AgentManagerBean implements AgentManager {
 		return aid;
 	}
 
+	@Override
+	public List<AID> startServerAgents(final AgentClass agClass, List<String> runtimeNames,
+			final AgentInitArgs args) {
+		String host = AID.HOST_NAME;
+		if (args != null) {
+			host = args.get("host", AID.HOST_NAME);
+		}
+		List<AID> aids = new ArrayList<>(runtimeNames.size());
+		Set<AID> unique = new HashSet<>();
+		List<AID> replaced = new ArrayList<>();
+		for (String name : runtimeNames) {
+			AID aid = new AID(name, host, agClass);
+			if (!unique.add(aid)) {
+				throw new IllegalArgumentException("Duplicate runtime name: " + name);
+			}
+			aids.add(aid);
+			if (removeAgent(aid)) {
+				replaced.add(aid);
+			}
+		}
+		if (aids.isEmpty()) {
+			return aids;
+		}
+		boolean updateUI = args == null || args.get("noUIUpdate", "").equals("");
+		if (replaced.size() > 0 && updateUI) {
+			LoggerUtil.logAgents(replaced, SocketMessageType.REMOVE_ALL);
+		}
+
+		// find out once whether the agents are stateful, then create all instances
+		final Map<AID, Agent> created = new ConcurrentHashMap<>();
+		final Map<AID, String> nodes = new ConcurrentHashMap<>();
+		created.put(aids.get(0), classes.newInstance(agClass));
+		// null only if the class was refreshed in the meantime
+		final String agentLookup = classes.getLookup(agClass);
+		inParallel(aids, new RunnableWithParam<AID>() {
+			@Override
+			public void run(AID aid) {
+				Agent agent = created.get(aid);
+				if (agent == null) {
+					if (agentLookup != null) {
+						agent = ObjectFactory.lookup(agentLookup, Agent.class);
+					} else {
+						agent = classes.newInstance(agClass);
+					}
+					created.put(aid, agent);
+				}
+				nodes.put(aid, agent.ping());
+			}
+		});
+
+		// register all agents before initializing any of them, see initAgent
+		getCache().putAll(new HashMap<>(created));
+		router.register(nodes);
+		String thisNode = NodeRouter.getNodeName();
+		for (Map.Entry<AID, String> e : nodes.entrySet()) {
+			if (thisNode.equals(e.getValue())) {
+				localDelivery.register(e.getKey(), created.get(e.getKey()));
+			}
+		}
+		inParallel(aids, new RunnableWithParam<AID>() {
+			@Override
+			public void run(AID aid) {
+				created.get(aid).init(aid, args);
+			}
+		});
+		for (Map.Entry<AID, String> e : nodes.entrySet()) {
+			if (thisNode.equals(e.getValue())) {
+				passivator.register(e.getKey(), created.get(e.getKey()));
+			}
+		}
+
+		LoggerUtil.log("Started " + aids.size() + " agents of class " + agClass + ".", true);
+		if (updateUI) {
+			LoggerUtil.logAgents(aids, SocketMessageType.ADD_ALL);
+		}
+		return aids;
+	}
+
+	@Override
+	public AID startShardedAgent(AgentClass agClass, String runtimeName, int shards, ShardKey key,
+			AgentInitArgs args) {
+		if (shards <= 0) {
+			throw new IllegalArgumentException("Invalid number of shards: " + shards);
+		}
+		if (key == null) {
+			throw new IllegalArgumentException("Shard key extractor cannot be null.");
+		}
+		String host = AID.HOST_NAME;
+		if (args != null) {
+			host = args.get("host", AID.HOST_NAME);
+		}
+		AID aid = new AID(runtimeName, host, agClass);
+		stopShards(aid);
+		List<String> names = new ArrayList<>(shards);
+		for (int i = 0; i < shards; i++) {
+			names.add(ShardGroup.getShardName(runtimeName, i));
+		}
+		List<AID> aids = startServerAgents(agClass, names, args);
+		shardRouter.register(new ShardGroup(aid, aids, key));
+		LoggerUtil.log("Sharded agent " + aid.getStr() + " started with " + shards + " shards.", true);
+		return aid;
+	}
+
 	@Override
 	public AID startClientAgent(AgentClass agClass, String name, AgentInitArgs args) {
 		return null;
@@ -127,10 +252,9 @@ public class AgentManagerBean implements AgentManager {
 	@Path("/running/{aid}")
 	@Override
 	public void stopAgent(@PathParam("aid") AID aid) {
-		Agent agent = getCache().get(aid);
-		if (agent != null) {
-			getCache().remove(aid);
-			// agent.stop();
+		if (stopShards(aid)) {
+			LoggerUtil.log("Stopped sharded agent: " + aid, true);
+		} else if (removeAgent(aid)) {
 			LoggerUtil.log("Stopped agent: " + aid, true);
 			LoggerUtil.logAgent(aid, SocketMessageType.REMOVE);
 			//LOG.info("Stopped agent: {}", aid);
@@ -141,44 +265,30 @@ public class AgentManagerBean implements AgentManager {
 	@Path("/classes")
 	@Override
 	public List<AgentClass> getAvailableAgentClasses() {
-		try {
-			return jndiTreeParser.parse();
-		} catch (NamingException ex) {
-			throw new IllegalStateException(ex);
-		}
+		return classes.getAll();
 	}
 
 	@GET
 	@Path("/running")
 	@Override
 	public List<AID> getRunningAgents() {
-		Set<AID> set = getCache().keySet();
-		if (set.size() > 0) {
-			try {
-				AID aid = set.iterator().next();
-				try {
-					ObjectFactory.lookup(getAgentLookup(aid.getAgClass(), true), Agent.class);
-				} catch (Exception ex) {
-					ObjectFactory.lookup(getAgentLookup(aid.getAgClass(), false), Agent.class);
-				}
-			} catch (Exception ex) {
-				getCache().clear();
-				return new ArrayList<AID>();
-			}
-		}
-		return new ArrayList<AID>(set);
+		return registry.getRunning();
 	}
 
 	@Override
 	public AID getAIDByRuntimeName(String runtimeName) {
 		// don't throw an exception if not found, because it will be intercepted
-		return findInRunning(runtimeName, getRunningAgents());
+		AID aid = registry.getByName(runtimeName);
+		if (aid == null) {
+			aid = shardRouter.findByName(runtimeName);
+		}
+		return aid;
 	}
 
 	@Override
 	public void pingAgent(AID aid) {
 		try {
-			Agent agent = getCache().get(aid);
+			Agent agent = registry.get(aid);
 			agent.ping();
 		} catch (Exception ex) {
 			throw new IllegalArgumentException("Unable to ping the agent.", ex);
@@ -187,7 +297,7 @@ public class AgentManagerBean implements AgentManager {
 
 	public Agent getAgentReference(AID aid) {
 		// don't throw an exception here if there's no such agent
-		return getCache().get(aid);
+		return registry.get(aid);
 	}
 
 	private Cache<AID, Agent> getCache() {
@@ -196,13 +306,59 @@ public class AgentManagerBean implements AgentManager {
 		return agents;
 	}
 
-	private String getAgentLookup(AgentClass agClass, boolean stateful) {
-		if (stateful)
-			return String.format("ejb:/%s//%s!%s?stateful", agClass.getModule(),
-					agClass.getEjbName(), Agent.class.getName());
-		else
-			return String.format("ejb:/%s//%s!%s", agClass.getModule(), agClass.getEjbName(),
-					Agent.class.getName());
+	private boolean stopShards(AID aid) {
+		ShardGroup group = shardRouter.deregister(aid);
+		if (group == null) {
+			return false;
+		}
+		for (AID shard : group.getShards()) {
+			removeAgent(shard);
+		}
+		LoggerUtil.logAgents(group.getShards(), SocketMessageType.REMOVE_ALL);
+		return true;
+	}
+
+	private boolean removeAgent(AID aid) {
+		Agent agent = registry.get(aid);
+		if (agent == null) {
+			return false;
+		}
+		getCache().remove(aid);
+		router.deregister(aid);
+		localDelivery.deregister(aid);
+		passivator.deregister(aid);
+		topics.unsubscribeAll(aid);
+		// agent.stop();
+		return true;
+	}
+
+	/**
+	 * Runs the task for all agents, split among up to SPAWN_TASKS executor threads, and waits
+	 * until it's done.
+	 */
+	private void inParallel(final List<AID> aids, final RunnableWithParam<AID> task) {
+		int chunk = (aids.size() + SPAWN_TASKS - 1) / SPAWN_TASKS;
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < aids.size(); i += chunk) {
+			futures.add(executor.execute(new RunnableWithParam<List<AID>>() {
+				@Override
+				public void run(List<AID> part) {
+					for (AID aid : part) {
+						task.run(aid);
+					}
+				}
+			}, aids.subList(i, Math.min(i + chunk, aids.size()))));
+		}
+		try {
+			for (Future<?> f : futures) {
+				f.get();
+			}
+		} catch (ExecutionException ex) {
+			throw new IllegalStateException("Unable to start the agents.", ex.getCause());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while starting the agents.", ex);
+		}
 	}
 
 	private void initAgent(Agent agent, AID aid, AgentInitArgs args) {
@@ -210,15 +366,16 @@ public class AgentManagerBean implements AgentManager {
 		// sends a message from there, it sometimes happens that the reply arrives before we
 		// register the AID. also some agents might wish to terminate themselves inside init.
 		getCache().put(aid, agent);
+		// ping returns the name of the node hosting the agent
+		String node = agent.ping();
+		router.register(aid, node);
+		if (NodeRouter.getNodeName().equals(node)) {
+			localDelivery.register(aid, agent);
+		}
 		agent.init(aid, args);
-	}
-
-	private AID findInRunning(String runtimeName, List<AID> running) {
-		for (AID aid : running) {
-			if (aid.getName().equals(runtimeName)) {
-				return aid;
-			}
+		// after init, so that the agent can decide based on its arguments
+		if (NodeRouter.getNodeName().equals(node)) {
+			passivator.register(aid, agent);
 		}
-		return null;
 	}
 }
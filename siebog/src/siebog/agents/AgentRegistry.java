@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.agents;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.DependsOn;
+import javax.ejb.LocalBean;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.inject.Inject;
+import org.infinispan.Cache;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryModifiedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import siebog.interaction.NodeRouter;
+import siebog.utils.GlobalCache;
+
+/**
+ * Node-local view of the running agents, kept up to date by listening to changes of the
+ * replicated running-agents cache. It answers existence checks on the messaging hot path without
+ * going through the cache itself.
+ * 
+ * Agent references are near-cached: the first lookup of an agent reads the replicated cache, and
+ * later lookups are answered locally until a change of the agent's entry anywhere in the cluster
+ * invalidates the local copy.
+ * 
+ * Agents are also indexed by their runtime names. If several agents share a name, a lookup by
+ * the name returns one of them.
+ */
+@Singleton
+@Startup
+@DependsOn("NodeRouter")
+@LocalBean
+@Lock(LockType.READ)
+public class AgentRegistry {
+	private static final Logger LOG = LoggerFactory.getLogger(AgentRegistry.class);
+	private final Set<AID> running = ConcurrentHashMap.newKeySet();
+	private final ConcurrentHashMap<String, Set<AID>> byName = new ConcurrentHashMap<>();
+	private final Map<AID, Agent> references = new ConcurrentHashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+	private Cache<AID, Agent> cache;
+	private RunningAgentsListener listener;
+	@Inject
+	private NodeRouter router;
+
+	@PostConstruct
+	public void postConstruct() {
+		cache = GlobalCache.get().getRunningAgents();
+		listener = new RunningAgentsListener();
+		// register first, so that no change goes unnoticed while copying the current state
+		cache.addListener(listener);
+		for (AID aid : cache.keySet()) {
+			add(aid);
+		}
+		removeStale();
+	}
+
+	@PreDestroy
+	public void preDestroy() {
+		cache.removeListener(listener);
+	}
+
+	/**
+	 * @return True if the agent is running anywhere in the cluster.
+	 */
+	public boolean isRunning(AID aid) {
+		if (running.contains(aid)) {
+			return true;
+		}
+		// the cache has the final say, e.g. if the listener hasn't seen the entry yet
+		if (cache.containsKey(aid)) {
+			add(aid);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return AID of a running agent with the given runtime name, or null if there is none.
+	 */
+	public AID getByName(String runtimeName) {
+		Set<AID> set = byName.get(runtimeName);
+		if (set != null) {
+			for (AID aid : set) {
+				return aid;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return Reference to the running agent, or null if there is no such agent.
+	 */
+	public Agent get(AID aid) {
+		Agent agent = references.get(aid);
+		if (agent != null) {
+			hits.incrementAndGet();
+			return agent;
+		}
+		misses.incrementAndGet();
+		long version = invalidations.get();
+		agent = cache.get(aid);
+		if (agent != null) {
+			references.put(aid, agent);
+			// the value read might have been replaced in the meantime
+			if (invalidations.get() != version) {
+				references.remove(aid);
+			}
+		}
+		return agent;
+	}
+
+	/**
+	 * @return All agents running in the cluster.
+	 */
+	public List<AID> getRunning() {
+		return new ArrayList<>(cache.keySet());
+	}
+
+	public int size() {
+		return running.size();
+	}
+
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new HashMap<>();
+		stats.put("registry.agents", (long) running.size());
+		stats.put("registry.references", (long) references.size());
+		stats.put("registry.hits", hits.get());
+		stats.put("registry.misses", misses.get());
+		return stats;
+	}
+
+	/**
+	 * The replicated cache outlives the deployment, so after a redeploy it can hold references to
+	 * agents that no longer exist. Anything registered as hosted by this node is stale, since the
+	 * registry starts before this node hosts any agents. Entries are removed one by one, so that
+	 * the other nodes are notified and drop their near-cache entries.
+	 */
+	private void removeStale() {
+		List<AID> stale = router.getHostedBy(NodeRouter.getNodeName());
+		if (stale.size() > 0) {
+			LOG.info("Removing {} stale agents from the running-agents cache.", stale.size());
+			for (AID aid : stale) {
+				cache.remove(aid);
+				router.deregister(aid);
+			}
+		}
+	}
+
+	private void add(AID key) {
+		// only registered agents are interned, so that the pool is bounded by the running agents
+		final AID aid = AIDPool.intern(key);
+		running.add(aid);
+		// compute() is atomic per name, so that a concurrent removal cannot drop the new set
+		byName.compute(aid.getName(), new BiFunction<String, Set<AID>, Set<AID>>() {
+			@Override
+			public Set<AID> apply(String name, Set<AID> set) {
+				if (set == null) {
+					set = ConcurrentHashMap.newKeySet(1);
+				}
+				set.add(aid);
+				return set;
+			}
+		});
+	}
+
+	private void remove(final AID aid) {
+		running.remove(aid);
+		byName.computeIfPresent(aid.getName(), new BiFunction<String, Set<AID>, Set<AID>>() {
+			@Override
+			public Set<AID> apply(String name, Set<AID> set) {
+				set.remove(aid);
+				return set.isEmpty() ? null : set;
+			}
+		});
+	}
+
+	private void invalidate(AID aid) {
+		invalidations.incrementAndGet();
+		references.remove(aid);
+	}
+
+	@Listener
+	public class RunningAgentsListener {
+		@CacheEntryCreated
+		public void entryCreated(CacheEntryCreatedEvent<AID, Agent> event) {
+			if (!event.isPre()) {
+				add(event.getKey());
+				invalidate(event.getKey());
+			}
+		}
+
+		@CacheEntryModified
+		public void entryModified(CacheEntryModifiedEvent<AID, Agent> event) {
+			if (!event.isPre()) {
+				// e.g. the agent was restarted
+				invalidate(event.getKey());
+			}
+		}
+
+		@CacheEntryRemoved
+		public void entryRemoved(CacheEntryRemovedEvent<AID, Agent> event) {
+			if (!event.isPre()) {
+				remove(event.getKey());
+				invalidate(event.getKey());
+				AIDPool.release(event.getKey());
+			}
+		}
+	}
+}
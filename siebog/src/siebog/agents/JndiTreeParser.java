@@ -42,16 +42,17 @@ import siebog.utils.ContextFactory;
 @LocalBean
 public class JndiTreeParser {
 	private static final String INTF = "!" + Agent.class.getName();
-	private static final String EXP = "java:jboss/exported/";
+	static final String EXP = "java:jboss/exported/";
 	private Context context;
-	private Set<Class<? extends XjafAgent>> ignored;
+	private Set<String> ignored;
 
 	@PostConstruct
 	public void postConstruct() {
 		context = ContextFactory.get();
 		ignored = new HashSet<>();
-		ignored.add(JasonEEAgent.class);
-		ignored.add(GUIAgent.class);
+		// ejb names, as extracted from the JNDI names
+		ignored.add(JasonEEAgent.class.getSimpleName());
+		ignored.add(GUIAgent.class.getSimpleName());
 	}
 
 	public List<AgentClass> parse() throws NamingException {
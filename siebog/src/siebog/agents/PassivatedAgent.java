@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.agents;
+
+import java.util.Collections;
+import java.util.List;
+import siebog.interaction.ACLMessage;
+import siebog.utils.ObjectFactory;
+
+/**
+ * Stands in for a passivated agent in the running-agents cache, instead of the proxy to its
+ * removed bean. Messages handed to it are posted again, so that they reach the agent's mailbox on
+ * its node and activate it there. The entry is replaced with the new bean once it's activated.
+ */
+final class PassivatedAgent implements Agent {
+	private static final long serialVersionUID = 1L;
+	private final AID aid;
+	private final String node;
+
+	public PassivatedAgent(AID aid, String node) {
+		this.aid = aid;
+		this.node = node;
+	}
+
+	@Override
+	public void init(AID aid, AgentInitArgs args) {
+		throw new IllegalStateException(aid + " is passivated.");
+	}
+
+	@Override
+	public void stop() {
+		// nothing to remove, its snapshot is removed when deregistered
+	}
+
+	@Override
+	public void handleMessage(ACLMessage msg) {
+		ObjectFactory.getMessageManager().post(msg.withReceivers(Collections.singletonList(aid)));
+	}
+
+	@Override
+	public void handleMessages(List<ACLMessage> msgs) {
+		for (ACLMessage msg : msgs) {
+			handleMessage(msg);
+		}
+	}
+
+	/**
+	 * The agent still exists, there is no need to activate it only to answer.
+	 */
+	@Override
+	public String ping() {
+		return node;
+	}
+
+	@Override
+	public long getPassivationTimeout() {
+		return 0;
+	}
+
+	@Override
+	public byte[] passivate() {
+		throw new IllegalStateException(aid + " is already passivated.");
+	}
+
+	@Override
+	public void activate(AID aid, byte[] snapshot) {
+		throw new IllegalStateException(aid + " is activated through its mailbox.");
+	}
+}
@@ -0,0 +1,261 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.agents;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.LocalBean;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+import org.infinispan.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import siebog.interaction.LocalDelivery;
+import siebog.interaction.NodeRouter;
+import siebog.utils.ExecutorService;
+import siebog.utils.GlobalCache;
+import siebog.utils.SnapshotStore;
+
+/**
+ * Passivates idle agents hosted on this node, see {@link Passivation}. Every
+ * "siebog.passivation.sweep" milliseconds (10s by default), agents that have been idle for longer
+ * than their timeout are detached from their mailboxes, their snapshots are written to the
+ * "siebog.passivation.dir" directory, and their beans are removed. The mailbox stays, and the
+ * next message to arrive activates the agent in a new bean.
+ * 
+ * The running-agents cache keeps the agent's entry, so that messages are still routed to this
+ * node, but its reference is replaced with a {@link PassivatedAgent} until activation.
+ */
+@Singleton
+@LocalBean
+@Lock(LockType.READ)
+public class Passivator {
+	private static final Logger LOG = LoggerFactory.getLogger(Passivator.class);
+	private static final String PROPERTY_PREFIX = "siebog.passivation.";
+	private static final long SWEEP_MILLIS = Long.getLong("siebog.passivation.sweep", 10_000);
+	private final Map<AID, Long> timeouts = new ConcurrentHashMap<>();
+	private final Set<AID> passivated = ConcurrentHashMap.newKeySet();
+	// snapshots which could not be written, kept until activation, or until a sweep writes them
+	private final Map<AID, byte[]> unwritten = new ConcurrentHashMap<>();
+	private final AtomicLong passivations = new AtomicLong();
+	private final AtomicLong activations = new AtomicLong();
+	@Inject
+	private LocalDelivery localDelivery;
+	@Inject
+	private AgentClassRegistry classes;
+	@Inject
+	private ExecutorService executor;
+	private Cache<AID, Agent> cache;
+	private SnapshotStore store;
+	private ScheduledFuture<?> sweeper;
+
+	@PostConstruct
+	public void postConstruct() {
+		cache = GlobalCache.get().getRunningAgents();
+		String dir = System.getProperty("siebog.passivation.dir",
+				Paths.get(System.getProperty("java.io.tmpdir"), "siebog-snapshots").toString());
+		try {
+			store = new SnapshotStore(Paths.get(dir, NodeRouter.getNodeName()));
+		} catch (IOException ex) {
+			throw new IllegalStateException("Cannot create the snapshot directory " + dir, ex);
+		}
+		// left over from a previous run, the agents they belonged to are gone
+		try {
+			int n = store.clear();
+			if (n > 0) {
+				LOG.info("Removed {} stale snapshots from {}.", n, dir);
+			}
+		} catch (IOException ex) {
+			LOG.warn("Cannot remove stale snapshots from {}.", dir, ex);
+		}
+		sweeper = executor.schedule(new Runnable() {
+			@Override
+			public void run() {
+				sweep();
+			}
+		}, SWEEP_MILLIS, SWEEP_MILLIS);
+	}
+
+	@PreDestroy
+	public void preDestroy() {
+		sweeper.cancel(false);
+	}
+
+	/**
+	 * Starts tracking a newly started agent hosted on this node, if its class is passivated.
+	 */
+	public void register(AID aid, Agent agent) {
+		Long timeout = Long.getLong(PROPERTY_PREFIX + aid.getAgClass());
+		if (timeout == null) {
+			timeout = agent.getPassivationTimeout();
+		}
+		if (timeout > 0) {
+			timeouts.put(aid, timeout);
+		}
+	}
+
+	/**
+	 * Stops tracking a stopped agent, and removes its snapshot, if any.
+	 */
+	public void deregister(AID aid) {
+		timeouts.remove(aid);
+		unwritten.remove(aid);
+		if (passivated.remove(aid)) {
+			try {
+				store.delete(aid);
+			} catch (IOException ex) {
+				LOG.warn("Cannot remove the snapshot of {}.", aid, ex);
+			}
+		}
+	}
+
+	public boolean isPassivated(AID aid) {
+		return passivated.contains(aid);
+	}
+
+	/**
+	 * Creates a new bean for a passivated agent, and restores its state.
+	 * 
+	 * @throws IllegalStateException If the agent's snapshot is missing, so that it's not activated
+	 *             without its state.
+	 */
+	public Agent activate(AID aid) {
+		if (!passivated.contains(aid)) {
+			throw new IllegalStateException(aid + " is not passivated.");
+		}
+		byte[] snapshot = unwritten.get(aid);
+		if (snapshot == null) {
+			try {
+				snapshot = store.read(aid);
+			} catch (IOException ex) {
+				throw new IllegalStateException("Cannot read the snapshot of " + aid, ex);
+			}
+			if (snapshot == null) {
+				throw new IllegalStateException("The snapshot of " + aid + " is missing.");
+			}
+		}
+		Agent agent = restore(aid, snapshot);
+		passivated.remove(aid);
+		unwritten.remove(aid);
+		activations.incrementAndGet();
+		try {
+			store.delete(aid);
+		} catch (IOException ex) {
+			LOG.warn("Cannot remove the snapshot of {}.", aid, ex);
+		}
+		return agent;
+	}
+
+	public Map<String, Long> getStats() {
+		long passive = passivated.size();
+		Map<String, Long> stats = new HashMap<>();
+		stats.put("passivation.resident", timeouts.size() - passive);
+		stats.put("passivation.passivated", passive);
+		stats.put("passivation.passivations", passivations.get());
+		stats.put("passivation.activations", activations.get());
+		return stats;
+	}
+
+	private void sweep() {
+		for (Map.Entry<AID, byte[]> e : unwritten.entrySet()) {
+			try {
+				store.write(e.getKey(), e.getValue());
+				unwritten.remove(e.getKey(), e.getValue());
+			} catch (IOException ex) {
+				LOG.warn("Still cannot write the snapshot of {}.", e.getKey(), ex);
+			}
+		}
+		for (Map.Entry<AID, Long> e : timeouts.entrySet()) {
+			AID aid = e.getKey();
+			if (passivated.contains(aid)) {
+				continue;
+			}
+			Agent agent = localDelivery.detachIfIdle(aid, e.getValue());
+			if (agent == null) {
+				continue;
+			}
+			Agent attached = null;
+			try {
+				attached = passivate(aid, agent);
+			} catch (RuntimeException ex) {
+				// the next message activates the agent from scratch
+				LOG.warn("Cannot passivate {}.", aid, ex);
+			} finally {
+				localDelivery.attach(aid, attached);
+			}
+		}
+	}
+
+	/**
+	 * @return The agent to reattach to the mailbox, null if it was passivated.
+	 */
+	private Agent passivate(AID aid, Agent agent) {
+		byte[] snapshot;
+		try {
+			snapshot = agent.passivate();
+		} catch (Exception ex) {
+			// the bean is retained
+			LOG.warn("Cannot passivate {}.", aid, ex);
+			return agent;
+		}
+		// the bean is gone, the snapshot is all that is left of the agent
+		try {
+			store.write(aid, snapshot);
+		} catch (IOException ex) {
+			LOG.warn("Cannot write the snapshot of {}, keeping it in memory.", aid, ex);
+			unwritten.put(aid, snapshot);
+		}
+		passivated.add(aid);
+		// also invalidates the references to the removed bean held by AgentRegistry; if the agent
+		// was stopped in the meantime, its entry is gone and must not be brought back
+		if (!timeouts.containsKey(aid)
+				|| !cache.replace(aid, agent, new PassivatedAgent(aid, NodeRouter.getNodeName()))) {
+			LOG.debug("{} was stopped while being passivated.", aid);
+			passivated.remove(aid);
+			unwritten.remove(aid);
+			try {
+				store.delete(aid);
+			} catch (IOException ex) {
+				LOG.warn("Cannot remove the snapshot of {}.", aid, ex);
+			}
+			return null;
+		}
+		passivations.incrementAndGet();
+		return null;
+	}
+
+	private Agent restore(AID aid, byte[] snapshot) {
+		Agent agent = classes.newInstance(aid.getAgClass());
+		agent.activate(aid, snapshot);
+		cache.put(aid, agent);
+		return agent;
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.agents;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import siebog.interaction.ACLMessage;
+
+/**
+ * A sharded agent: a single logical AID, backed by a number of agent instances (shards), each
+ * running in its own bean and so processing messages in parallel with the others.
+ */
+public class ShardGroup implements Serializable {
+	private static final long serialVersionUID = 1L;
+	/**
+	 * Separates the logical name from the shard index in runtime names of shards.
+	 */
+	public static final char SEPARATOR = '#';
+	private final AID aid;
+	private final List<AID> shards;
+	private final ShardKey key;
+
+	public ShardGroup(AID aid, List<AID> shards, ShardKey key) {
+		if (shards.isEmpty()) {
+			throw new IllegalArgumentException("A sharded agent needs at least one shard.");
+		}
+		this.aid = aid;
+		this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+		this.key = key;
+	}
+
+	/**
+	 * @return The shard which should handle the message.
+	 */
+	public AID select(ACLMessage msg) {
+		Object k = key.getKey(msg);
+		int n = shards.size();
+		if (k == null) {
+			return shards.get(ThreadLocalRandom.current().nextInt(n));
+		}
+		return shards.get((k.hashCode() & Integer.MAX_VALUE) % n);
+	}
+
+	public AID getAid() {
+		return aid;
+	}
+
+	public List<AID> getShards() {
+		return shards;
+	}
+
+	public static String getShardName(String runtimeName, int index) {
+		return runtimeName + SEPARATOR + index;
+	}
+
+	/**
+	 * @return Index of the shard with the given runtime name, or -1 if it's not a shard.
+	 */
+	public static int getShardIndex(String runtimeName) {
+		int n = runtimeName.lastIndexOf(SEPARATOR);
+		if (n < 0) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(runtimeName.substring(n + 1));
+		} catch (NumberFormatException ex) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.agents;
+
+import java.io.Serializable;
+import siebog.interaction.ACLMessage;
+
+/**
+ * Extracts the key by which messages to a sharded agent are routed to one of its shards. All
+ * messages with equal keys are handled by the same shard, so the state belonging to a key can
+ * live in that shard alone. The key's hashCode must be the same on all nodes, as it is for
+ * strings, numbers and lists of them.
+ * 
+ * The extractor is replicated across the cluster, so it should be a small, stateless class.
+ */
+public interface ShardKey extends Serializable {
+	/**
+	 * Routes all messages of a sender to the same shard.
+	 */
+	ShardKey BY_SENDER = new SenderKey();
+
+	/**
+	 * @return The key, or null if the message can be handled by any shard.
+	 */
+	Object getKey(ACLMessage msg);
+
+	static class SenderKey implements ShardKey {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Object getKey(ACLMessage msg) {
+			return msg.sender == null ? null : msg.sender.getStr();
+		}
+
+		private Object readResolve() {
+			return BY_SENDER;
+		}
+	}
+}
@@ -20,13 +20,25 @@
 
 package siebog.agents;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 import javax.ejb.Lock;
 import javax.ejb.LockType;
 import javax.ejb.Remove;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import siebog.interaction.ACLMessage;
+import siebog.interaction.LocalDelivery;
 import siebog.interaction.MessageManager;
+import siebog.interaction.ReplyCorrelator;
+import siebog.interaction.codec.Serialization;
 import siebog.utils.ObjectFactory;
 
 /**
@@ -45,6 +57,8 @@ public abstract class XjafAgent implements Agent {
 	protected AID myAid;
 	private AgentManager agm;
 	private MessageManager msm;
+	private LocalDelivery localDelivery;
+	private ReplyCorrelator correlator;
 
 	// TODO : Restore support for heartbeats.
 	// private transient long hbHandle;
@@ -60,6 +74,11 @@ public abstract class XjafAgent implements Agent {
 
 	@Override
 	public void handleMessage(ACLMessage msg) {
+		// replies to ask() are normally intercepted by the local mailbox, unless they were
+		// delivered through a remote proxy
+		if (msg.inReplyTo != null && correlator().complete(myAid, msg)) {
+			return;
+		}
 		// TODO : check if the access to onMessage is protected
 		// TODO : Restore support for heartbeats.
 		if (msg instanceof HeartbeatMessage) {
@@ -79,6 +98,13 @@ public abstract class XjafAgent implements Agent {
 		}
 	}
 
+	@Override
+	public void handleMessages(List<ACLMessage> msgs) {
+		for (ACLMessage msg : msgs) {
+			handleMessage(msg);
+		}
+	}
+
 	protected abstract void onMessage(ACLMessage msg);
 
 	protected boolean onHeartbeat(String content) {
@@ -98,22 +124,116 @@ public abstract class XjafAgent implements Agent {
 		}
 	}
 
+	@Override
+	public long getPassivationTimeout() {
+		Passivation p = getClass().getAnnotation(Passivation.class);
+		return p != null ? p.idleMillis() : 0;
+	}
+
+	@Override
+	@Remove(retainIfException = true)
+	public byte[] passivate() {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+			try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+				out.write(Serialization.serialize(onPassivate()));
+			}
+			return bytes.toByteArray();
+		} catch (IOException ex) {
+			throw new IllegalStateException("Cannot take a snapshot of " + myAid, ex);
+		}
+	}
+
+	@Override
+	public void activate(AID aid, byte[] snapshot) {
+		myAid = aid;
+		Serializable state = null;
+		if (snapshot != null) {
+			try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(snapshot))) {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream(snapshot.length * 4);
+				byte[] buf = new byte[4096];
+				int n;
+				while ((n = in.read(buf)) > 0)
+					bytes.write(buf, 0, n);
+				state = (Serializable) Serialization.deserialize(bytes.toByteArray());
+			} catch (IOException ex) {
+				throw new IllegalStateException("Cannot restore " + aid + " from its snapshot.", ex);
+			}
+		}
+		onActivate(state);
+	}
+
+	/**
+	 * Called before an idle agent is passivated, see {@link Passivation}. Only the returned state
+	 * survives, so it should hold everything the agent needs, and not much more, as it's written
+	 * to disk.
+	 */
+	protected Serializable onPassivate() {
+		return null;
+	}
+
+	/**
+	 * Called instead of onInit when a passivated agent is activated again.
+	 * 
+	 * @param state The value returned by onPassivate.
+	 */
+	protected void onActivate(Serializable state) {
+	}
+
+	/**
+	 * Posts a request and returns a future completed by the first reply to it, bypassing
+	 * onMessage. If the reply does not arrive in time, the future fails with
+	 * {@link java.util.concurrent.TimeoutException}. A replyWith value is generated if the
+	 * message does not have one.
+	 */
+	protected Future<ACLMessage> ask(ACLMessage msg, long timeoutMillis) {
+		if (msg.replyWith == null || msg.replyWith.isEmpty())
+			msg.replyWith = UUID.randomUUID().toString();
+		Future<ACLMessage> reply = correlator().register(myAid, msg.replyWith, timeoutMillis);
+		try {
+			msm().post(msg);
+		} catch (RuntimeException ex) {
+			correlator().cancel(msg.replyWith);
+			throw ex;
+		}
+		return reply;
+	}
+
+	/**
+	 * Takes the next message from this agent's mailbox, without waiting for it to be dispatched
+	 * to onMessage.
+	 * 
+	 * @return The next message, or null if the mailbox is empty.
+	 */
 	protected ACLMessage receiveNoWait() {
-		return null; // queue.poll(); // TODO : Implement receiveNoWait.
+		return localDelivery().receive(myAid);
 	}
 
+	/**
+	 * Waits for the next message in this agent's mailbox.
+	 * 
+	 * @param timeout Maximum wait time in milliseconds, 0 to wait indefinitely.
+	 * @return The next message, or null if none arrived in time.
+	 */
 	protected ACLMessage receiveWait(long timeout) {
 		if (timeout < 0)
 			throw new IllegalArgumentException("The timeout value cannot be negative.");
-		ACLMessage msg = null;
-		// TODO : Implement receiveWait.
-		// try {
-		// if (timeout == 0)
-		// timeout = Long.MAX_VALUE;
-		// msg = queue.poll(timeout, TimeUnit.MILLISECONDS);
-		// } catch (InterruptedException ex) {
-		// }
-		return msg;
+		if (timeout == 0)
+			timeout = Long.MAX_VALUE;
+		return localDelivery().receive(myAid, timeout);
+	}
+
+	/**
+	 * Subscribes this agent to the named topic, see
+	 * {@link MessageManager#publish(String, ACLMessage)}. Subscriptions are removed once the agent
+	 * is stopped.
+	 */
+	protected void subscribe(String topic) {
+		msm().subscribe(topic, myAid);
+	}
+
+	protected void unsubscribe(String topic) {
+		msm().unsubscribe(topic, myAid);
 	}
 
 	@Override
@@ -176,4 +296,16 @@ public abstract class XjafAgent implements Agent {
 			msm = ObjectFactory.getMessageManager();
 		return msm;
 	}
+
+	private ReplyCorrelator correlator() {
+		if (correlator == null)
+			correlator = ObjectFactory.getReplyCorrelator();
+		return correlator;
+	}
+
+	private LocalDelivery localDelivery() {
+		if (localDelivery == null)
+			localDelivery = ObjectFactory.getLocalDelivery();
+		return localDelivery;
+	}
 }
\ No newline at end of file
@@ -23,6 +23,8 @@ package siebog.agents.xjaf.aco.tsp;
 import java.io.File;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import siebog.SiebogClient;
 import siebog.agents.Agent;
 import siebog.agents.AgentClass;
@@ -56,10 +58,12 @@ public class ACOStarter {
 		AgentInitArgs mapArgs = new AgentInitArgs("fileName=" + path);
 		agm.startServerAgent(mapClass, "Map", mapArgs);
 
+		List<String> names = new ArrayList<>(nAnts);
 		for (int i = 1; i <= nAnts; ++i) {
-			AgentClass agClass = new AgentClass(Agent.SIEBOG_MODULE, "Ant");
-			agm.startServerAgent(agClass, "Ant" + i, new AgentInitArgs("host=localhost"));
+			names.add("Ant" + i);
 		}
+		AgentClass agClass = new AgentClass(Agent.SIEBOG_MODULE, "Ant");
+		agm.startServerAgents(agClass, names, new AgentInitArgs("host=localhost"));
 	}
 
 	private static String getMapFilePath(String mapName) {
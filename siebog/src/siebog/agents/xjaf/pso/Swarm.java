@@ -20,6 +20,8 @@
 
 package siebog.agents.xjaf.pso;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
 import javax.ejb.Remote;
 import javax.ejb.Stateful;
@@ -82,12 +84,13 @@ public class Swarm extends XjafAgent {
 		logger.fine("Number of particles in swarm = " + numberParticles);
 
 		logger.fine("Initializing swarm with random positions/solutions.");
+		AgentInitArgs mapArgs = new AgentInitArgs("dimension->" + dimension, "minx->" + minX,
+				"maxx->" + maxX);
+		List<String> names = new ArrayList<>(numberParticles);
 		for (int i = 0; i < numberParticles; ++i) {
-			AgentInitArgs mapArgs = new AgentInitArgs("dimension->" + dimension, "minx->" + minX,
-					"maxx->" + maxX);
-			agm().startServerAgent(new AgentClass(Agent.SIEBOG_MODULE, "Particle"), "Particle" + i,
-					mapArgs);
+			names.add("Particle" + i);
 		}
+		agm().startServerAgents(new AgentClass(Agent.SIEBOG_MODULE, "Particle"), names, mapArgs);
 
 		logger.info("Entering main PSO processing loop");
 		iterate();
@@ -23,16 +23,13 @@ package siebog.interaction;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import javax.enterprise.inject.Default;
 import javax.ws.rs.FormParam;
-import org.hornetq.utils.json.JSONArray;
 import org.hornetq.utils.json.JSONException;
-import org.hornetq.utils.json.JSONObject;
 import siebog.agents.AID;
+import siebog.interaction.codec.JsonCodec;
 
 /**
  * Represents a FIPA ACL message. Refer to <a
@@ -43,9 +40,9 @@ import siebog.agents.AID;
  * @author <a href="mitrovic.dejan@gmail.com">Dejan Mitrovic</a>
  */
 @Default
-public class ACLMessage implements Serializable {
+public class ACLMessage implements Serializable, Cloneable {
 	private static final long serialVersionUID = 1L;
-	private static final String USERARG_PREFIX = "X-";
+	public static final String USERARG_PREFIX = "X-";
 
 	// Denotes the type of the communicative act of the ACL message.
 	@FormParam("performative")
@@ -108,6 +105,17 @@ public class ACLMessage implements Serializable {
 	@FormParam("replyBy")
 	public long replyBy;
 
+	/* Delivery */
+
+	// Delivery priority, from 0 to 9. If unset, it is derived from the
+	// performative, see MessagePriority.
+	@FormParam("priority")
+	public int priority = MessagePriority.UNSET;
+	// Opt-in: a pending, not yet dispatched message with the same key is replaced by this one in
+	// the receiver's mailbox. Use only for notifications where the latest one is all that matters.
+	@FormParam("coalesceKey")
+	public String coalesceKey;
+
 	public ACLMessage() {
 		this(Performative.NOT_UNDERSTOOD);
 	}
@@ -118,44 +126,9 @@ public class ACLMessage implements Serializable {
 		userArgs = new HashMap<>();
 	}
 
-	@SuppressWarnings("unchecked")
 	public ACLMessage(String jsonString) throws JSONException {
-		JSONObject obj = new JSONObject(jsonString);
-		performative = Performative.valueOf(obj.getString("performative").toUpperCase());
-
-		String str = obj.optString("sender");
-		if (str != null && !str.isEmpty())
-			sender = new AID(str);
-
-		receivers = new ArrayList<>();
-		JSONArray arr = obj.optJSONArray("receivers");
-		if (arr != null && arr.length() > 0)
-			for (int i = 0; i < arr.length(); i++)
-				receivers.add(new AID(arr.getString(i)));
-
-		str = obj.optString("replyTo");
-		if (str != null && !str.isEmpty())
-			replyTo = new AID(str);
-		content = obj.optString("content");
-		language = obj.optString("language");
-		encoding = obj.optString("encoding");
-		ontology = obj.optString("ontology");
-		protocol = obj.optString("protocol");
-		conversationId = obj.optString("conversationId");
-		replyWith = obj.optString("replyWith");
-		inReplyTo = obj.optString("inReplyTo");
-		replyBy = obj.optLong("replyBy");
-		// user args
-		userArgs = new HashMap<>();
-		Iterator<String> i = obj.keys();
-		while (i.hasNext()) {
-			String key = i.next();
-			if (key.startsWith(USERARG_PREFIX)) {
-				String subKey = key.substring(USERARG_PREFIX.length());
-				Serializable value = (Serializable) obj.get(key);
-				userArgs.put(subKey, value);
-			}
-		}
+		this();
+		JsonCodec.read(jsonString, this);
 	}
 
 	public boolean canReplyTo() {
@@ -179,30 +152,21 @@ public class ACLMessage implements Serializable {
 		return reply;
 	}
 
-	@Override
-	public String toString() {
-		JSONObject obj = new JSONObject();
+	/**
+	 * @return A shallow copy of this message, of the same class, addressed to the given receivers.
+	 */
+	public ACLMessage withReceivers(List<AID> receivers) {
 		try {
-			// TODO Right now, JSONObject will contain only strings, which will need to be parsed
-			// manually later on. Implement a better JSON builder.
-			obj.put("performative", performative);
-			obj.put("sender", sender);
-			JSONArray arr = new JSONArray(receivers);
-			obj.put("receivers", arr);
-			obj.put("replyTo", replyTo);
-			obj.put("content", content);
-			obj.put("language", language);
-			obj.put("encoding", encoding);
-			obj.put("ontology", ontology);
-			obj.put("protocol", protocol);
-			obj.put("conversationId", conversationId);
-			obj.put("replyWith", replyWith);
-			obj.put("inReplyTo", inReplyTo);
-			obj.put("replyBy", replyBy);
-			for (Entry<String, Serializable> e : userArgs.entrySet())
-				obj.put(USERARG_PREFIX + e.getKey(), e.getValue());
-		} catch (JSONException ex) {
+			ACLMessage copy = (ACLMessage) super.clone();
+			copy.receivers = receivers;
+			return copy;
+		} catch (CloneNotSupportedException ex) {
+			throw new IllegalStateException(ex);
 		}
-		return obj.toString();
+	}
+
+	@Override
+	public String toString() {
+		return JsonCodec.toJson(this);
 	}
 }
\ No newline at end of file
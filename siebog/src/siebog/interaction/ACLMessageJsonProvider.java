@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import org.hornetq.utils.json.JSONException;
+import siebog.interaction.codec.JsonCodec;
+
+/**
+ * Reads and writes ACL messages as JSON request and response bodies. Messages are written straight
+ * to the response stream, see {@link JsonCodec}.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class ACLMessageJsonProvider implements MessageBodyReader<ACLMessage>,
+		MessageBodyWriter<ACLMessage> {
+
+	@Override
+	public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType) {
+		return ACLMessage.class.isAssignableFrom(type);
+	}
+
+	@Override
+	public long getSize(ACLMessage msg, Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType) {
+		return -1;
+	}
+
+	@Override
+	public void writeTo(ACLMessage msg, Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+			OutputStream entityStream) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(entityStream, StandardCharsets.UTF_8));
+		JsonCodec.write(msg, out);
+		out.flush();
+	}
+
+	@Override
+	public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType) {
+		return type == ACLMessage.class;
+	}
+
+	@Override
+	public ACLMessage readFrom(Class<ACLMessage> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream)
+			throws IOException {
+		StringBuilder sb = new StringBuilder(512);
+		Reader in = new InputStreamReader(entityStream, StandardCharsets.UTF_8);
+		char[] buf = new char[4096];
+		int n;
+		while ((n = in.read(buf)) > 0)
+			sb.append(buf, 0, n);
+		try {
+			return new ACLMessage(sb.toString());
+		} catch (JSONException | IllegalArgumentException ex) {
+			throw new WebApplicationException(ex, Status.BAD_REQUEST);
+		}
+	}
+}
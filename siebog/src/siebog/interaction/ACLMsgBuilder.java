@@ -114,6 +114,16 @@ public class ACLMsgBuilder {
 		return this;
 	}
 
+	public ACLMsgBuilder priority(int priority) {
+		msg.priority = priority;
+		return this;
+	}
+
+	public ACLMsgBuilder coalesceKey(String coalesceKey) {
+		msg.coalesceKey = coalesceKey;
+		return this;
+	}
+
 	public ACLMessage build() {
 		return msg;
 	}
@@ -125,4 +135,8 @@ public class ACLMsgBuilder {
 	public void post(long delayMillisec) {
 		ObjectFactory.getMessageManager().post(build(), delayMillisec);
 	}
+
+	public void postBatch() {
+		ObjectFactory.getMessageManager().postBatch(build());
+	}
 }
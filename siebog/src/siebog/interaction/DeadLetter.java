@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import java.io.Serializable;
+
+/**
+ * Summary of a message that could not be delivered to one of its receivers.
+ */
+public class DeadLetter implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private final String receiver;
+	private final String sender;
+	private final String performative;
+	private final String reason;
+	private final long timestamp;
+
+	public DeadLetter(ACLMessage msg, String receiver, String reason) {
+		this.receiver = receiver;
+		sender = msg.sender != null ? msg.sender.getStr() : null;
+		performative = msg.performative != null ? msg.performative.toString() : null;
+		this.reason = reason;
+		timestamp = System.currentTimeMillis();
+	}
+
+	public String getReceiver() {
+		return receiver;
+	}
+
+	public String getSender() {
+		return sender;
+	}
+
+	public String getPerformative() {
+		return performative;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return reason + ": " + performative + " from " + sender + " to " + receiver;
+	}
+}
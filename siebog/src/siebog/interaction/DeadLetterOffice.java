@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ejb.LocalBean;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import siebog.agents.AID;
+
+/**
+ * Collects messages which could not be delivered on this node. It keeps a counter per reason and
+ * receiver's agent class, along with a window of the most recent dead letters, so that lost
+ * traffic can be diagnosed.
+ */
+@Singleton
+@LocalBean
+@Lock(LockType.READ)
+public class DeadLetterOffice {
+	private static final Logger LOG = LoggerFactory.getLogger(DeadLetterOffice.class);
+	/** The receiver was not running when the message was posted. */
+	public static final String UNKNOWN_RECEIVER = "unknown-receiver";
+	/** The receiver stopped before the message could be delivered. */
+	public static final String UNDELIVERABLE = "undeliverable";
+	/** The receiver has run out of credits, see {@link FlowPolicy}. */
+	public static final String OVERLOADED = "overloaded";
+	private static final int RECENT_SIZE = 100;
+	private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+	private final DeadLetter[] recent = new DeadLetter[RECENT_SIZE];
+	private final AtomicLong total = new AtomicLong();
+
+	public void add(ACLMessage msg, AID receiver, String reason) {
+		DeadLetter letter = new DeadLetter(msg, receiver.getStr(), reason);
+		long n = total.getAndIncrement();
+		recent[(int) (n % RECENT_SIZE)] = letter;
+		increment(reason);
+		if (receiver.getAgClass() != null) {
+			increment(reason + "." + receiver.getAgClass().getEjbName());
+		}
+		LOG.debug("Dead letter: {}", letter);
+	}
+
+	public Map<String, Long> getCounters() {
+		Map<String, Long> map = new HashMap<>();
+		map.put("total", total.get());
+		for (Map.Entry<String, AtomicLong> e : counters.entrySet()) {
+			map.put(e.getKey(), e.getValue().get());
+		}
+		return map;
+	}
+
+	/**
+	 * @return Most recent dead letters, oldest first.
+	 */
+	public List<DeadLetter> getRecent() {
+		List<DeadLetter> list = new ArrayList<>(RECENT_SIZE);
+		long n = total.get();
+		for (long i = Math.max(0, n - RECENT_SIZE); i < n; i++) {
+			DeadLetter letter = recent[(int) (i % RECENT_SIZE)];
+			if (letter != null) {
+				list.add(letter);
+			}
+		}
+		return list;
+	}
+
+	private void increment(String key) {
+		AtomicLong counter = counters.get(key);
+		if (counter == null) {
+			AtomicLong c = new AtomicLong();
+			counter = counters.putIfAbsent(key, c);
+			if (counter == null) {
+				counter = c;
+			}
+		}
+		counter.incrementAndGet();
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ejb.LocalBean;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import siebog.agents.AID;
+import siebog.utils.ExecutorService;
+import siebog.utils.HashedWheelTimer.Timeout;
+
+/**
+ * Delayed delivery of messages to agents hosted on this node. The messages are kept in memory,
+ * on the timing wheel of {@link ExecutorService}, instead of being scheduled by the broker. Each
+ * scheduled message gets a handle, which can be used to cancel it before it is delivered.
+ */
+@Singleton
+@LocalBean
+@Lock(LockType.READ)
+public class DelayedDelivery {
+	private static final Logger LOG = LoggerFactory.getLogger(DelayedDelivery.class);
+	private final ConcurrentMap<Long, Timeout> scheduled = new ConcurrentHashMap<>();
+	private final AtomicLong handles = new AtomicLong();
+	@Inject
+	private ExecutorService executor;
+	@Inject
+	private LocalDelivery localDelivery;
+	@Inject
+	private DeadLetterOffice deadLetters;
+
+	/**
+	 * @return Handle of the scheduled delivery, always a positive number.
+	 */
+	public long schedule(final ACLMessage msg, final List<AID> receivers, long delayMillisec) {
+		final long handle = handles.incrementAndGet();
+		Timeout t = executor.newTimeout(new Runnable() {
+			@Override
+			public void run() {
+				scheduled.remove(handle);
+				// a full mailbox would block the timer thread
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						deliver(msg, receivers);
+					}
+				});
+			}
+		}, delayMillisec);
+		scheduled.put(handle, t);
+		// the timeout may have expired before it got registered
+		if (t.isExpired()) {
+			scheduled.remove(handle);
+		}
+		return handle;
+	}
+
+	/**
+	 * @return True if the delivery was cancelled, false if the handle is unknown on this node, or
+	 *         the message has already been delivered.
+	 */
+	public boolean cancel(long handle) {
+		Timeout t = scheduled.remove(handle);
+		return t != null && t.cancel();
+	}
+
+	public int getPending() {
+		return scheduled.size();
+	}
+
+	private void deliver(ACLMessage msg, List<AID> receivers) {
+		for (AID aid : receivers) {
+			try {
+				if (!localDelivery.deliver(msg, aid)) {
+					LOG.info("No such agent: {}", aid.getName());
+					deadLetters.add(msg, aid, DeadLetterOffice.UNDELIVERABLE);
+				}
+			} catch (MailboxFullException ex) {
+				deadLetters.add(msg, aid, DeadLetterOffice.OVERLOADED);
+			} catch (RuntimeException ex) {
+				LOG.warn("Cannot deliver a delayed message to {}.", aid, ex);
+			}
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import java.io.Serializable;
+
+/**
+ * Confirms that a message has been accepted for delivery, either by the broker or by the
+ * mailboxes of agents hosted on the sender's node.
+ */
+public class DeliveryReceipt implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private final int local;
+	private final int remote;
+	private final int throttled;
+	private final long timerHandle;
+
+	public DeliveryReceipt(int local, int remote, int throttled, long timerHandle) {
+		this.local = local;
+		this.remote = remote;
+		this.throttled = throttled;
+		this.timerHandle = timerHandle;
+	}
+
+	/**
+	 * @return Number of receivers whose mailboxes accepted the message directly.
+	 */
+	public int getLocal() {
+		return local;
+	}
+
+	/**
+	 * @return Number of receivers for which the message was handed to the broker.
+	 */
+	public int getRemote() {
+		return remote;
+	}
+
+	/**
+	 * @return Number of local receivers which accepted the message, but have used up their
+	 *         credits. The sender should slow down.
+	 */
+	public int getThrottled() {
+		return throttled;
+	}
+
+	/**
+	 * @return Handle of the in-memory delayed delivery to local receivers, or 0 if there is none.
+	 */
+	public long getTimerHandle() {
+		return timerHandle;
+	}
+
+	@Override
+	public String toString() {
+		return "DeliveryReceipt[local=" + local + ", remote=" + remote + ", throttled=" + throttled
+				+ "]";
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.ejb.LocalBean;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import org.infinispan.Cache;
+import siebog.utils.DedupWindow;
+import siebog.utils.GlobalCache;
+
+/**
+ * Exactly-once delivery of JMS messages. Each message posted through JMS gets a unique,
+ * deterministic id, made of its sender, the producing node, and a sequence number. The same id
+ * (plus the receiver) is used as the broker's duplicate id, so that a send retried after failover
+ * is detected by the broker, and is checked here by the consumer, so that a message redelivered
+ * after failover is not handed to its receiver twice.
+ * <p>
+ * By default, the deliveries made in the last "siebog.dedup.window" milliseconds are only
+ * remembered by the consuming node, and forgotten when it restarts. Delivery is then exactly-once
+ * as long as a message is redelivered to the same node, and at-least-once otherwise, e.g. if the
+ * node fails and its messages are consumed elsewhere. Setting "siebog.dedup.shared" to true also
+ * records each delivery in the replicated "delivered-messages" cache, for the same time, which
+ * makes it exactly-once across the cluster, at the cost of a synchronous cluster write per
+ * delivery.
+ */
+@Singleton
+@LocalBean
+@Lock(LockType.READ)
+public class DuplicateFilter {
+	/** JMS property holding the message id. */
+	public static final String ID_PROPERTY = "siebogMsgId";
+	private static final long WINDOW = Long.getLong("siebog.dedup.window", 300_000);
+	private static final int MAX_KEYS = Integer.getInteger("siebog.dedup.max", 100_000);
+	private static final boolean SHARED = Boolean.getBoolean("siebog.dedup.shared");
+	// distinguishes the sequences of different nodes, and of restarts of the same node
+	private static final String PRODUCER = System.getProperty("jboss.node.name") + "."
+			+ Long.toString(System.currentTimeMillis(), 36);
+	private static final AtomicLong sequence = new AtomicLong();
+	private final DedupWindow window = new DedupWindow(WINDOW, MAX_KEYS);
+	private final AtomicLong duplicates = new AtomicLong();
+	// key -> consuming node, null unless shared
+	private Cache<String, String> delivered;
+
+	@PostConstruct
+	public void postConstruct() {
+		if (SHARED) {
+			delivered = GlobalCache.get().getDeliveredMessages();
+		}
+	}
+
+	/**
+	 * @return New id for a message about to be posted. The sequence is shared by all senders on
+	 *         this node, so it is monotonic, but not contiguous, for each of them.
+	 */
+	public static String nextId(ACLMessage msg) {
+		String sender = msg.sender != null ? msg.sender.getStr() : "";
+		return sender + "/" + PRODUCER + "/" + sequence.incrementAndGet();
+	}
+
+	/**
+	 * @return Key identifying one delivery of the message.
+	 */
+	public static String getKey(String msgId, int receiverIndex) {
+		return msgId + "/" + receiverIndex;
+	}
+
+	/**
+	 * @return False if the delivery has already been made, and should be skipped.
+	 */
+	public boolean accept(String key) {
+		// the local window is checked first, it catches most duplicates without a cluster call
+		if (window.add(key, System.currentTimeMillis())
+				&& (delivered == null || delivered.putIfAbsent(key, NodeRouter.getNodeName(),
+						WINDOW, TimeUnit.MILLISECONDS) == null))
+			return true;
+		duplicates.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Forgets a delivery which failed, so that it is accepted once redelivered.
+	 */
+	public void failed(String key) {
+		window.remove(key);
+		if (delivered != null) {
+			delivered.remove(key);
+		}
+	}
+
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new HashMap<>();
+		stats.put("dedup.keys", (long) window.size());
+		stats.put("dedup.duplicates", duplicates.get());
+		return stats;
+	}
+}
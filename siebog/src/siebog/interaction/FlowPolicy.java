@@ -0,0 +1,40 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+/**
+ * What happens to a message when its receiver has run out of credits, i.e. when the number of
+ * pending messages in its mailbox has reached the limit set with "siebog.flow.credits".
+ */
+public enum FlowPolicy {
+	/**
+	 * The sender waits for a credit, for at most "siebog.mailbox.timeout" milliseconds. Drainers
+	 * and MDB threads don't wait, their messages are refused right away.
+	 */
+	BLOCK,
+	/** The message is refused right away. */
+	REJECT,
+	/**
+	 * The message is accepted, as long as the mailbox is not full, and the overload is reported to
+	 * the sender through {@link DeliveryReceipt#getThrottled()}.
+	 */
+	SIGNAL
+}
@@ -1,13 +1,24 @@
 package siebog.interaction;
 
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.ejb.LocalBean;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
 import javax.ejb.Singleton;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
 import javax.jms.MessageProducer;
 import javax.jms.Queue;
 import javax.jms.QueueSession;
@@ -16,17 +27,33 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import siebog.agents.Agent;
 
+/**
+ * Shares a single JMS connection, and keeps a pool of idle sessions with their producers, so
+ * that senders do not have to create a new session for each bean instance. The maximum number of
+ * idle sessions is set with the "siebog.jms.pool" system property.
+ */
 @Singleton
 @LocalBean
+@Lock(LockType.READ)
 public class JMSFactory {
+	private static final int POOL_SIZE = Integer.getInteger("siebog.jms.pool", 32);
+	// how long to wait for the next message when moving them, the queue is drained once it expires
+	private static final long RECEIVE_TIMEOUT = 1000;
+	private static final String DUPLICATE_ID = "_HQ_DUPL_ID";
 	private Logger LOG = LoggerFactory.getLogger(JMSFactory.class);
 	private Connection connection;
 	@Resource(lookup = "java:jboss/exported/jms/RemoteConnectionFactory")
 	private ConnectionFactory connectionFactory;
 	@Resource(lookup = "java:jboss/exported/jms/queue/siebog")
 	private Queue defaultQueue;
+	// test replies are consumed by MDBConsumer like any other message, and delivered to the
+	// receiving test agent; nothing consumes queue/testSiebog
 	@Resource(lookup = "java:jboss/exported/jms/queue/siebog")
 	private Queue testQueue;
+	private final BlockingDeque<PooledSession> idle = new LinkedBlockingDeque<>(POOL_SIZE);
+	private final AtomicInteger open = new AtomicInteger();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
 
 	@PostConstruct
 	public void postConstruct() {
@@ -41,6 +68,10 @@ public class JMSFactory {
 
 	@PreDestroy
 	public void preDestroy() {
+		PooledSession s;
+		while ((s = idle.pollFirst()) != null) {
+			s.close();
+		}
 		try {
 			connection.close();
 		} catch (JMSException ex) {
@@ -48,27 +79,106 @@ public class JMSFactory {
 		}
 	}
 
-	public Session getSession() {
+	/**
+	 * Takes an idle session from the pool, or creates a new one if there are none. The session
+	 * needs to be returned with {@link #releaseSession(PooledSession)}.
+	 */
+	PooledSession borrowSession() {
+		// most recently used first, its resources are more likely to be warm
+		PooledSession s = idle.pollFirst();
+		if (s != null) {
+			hits.incrementAndGet();
+			return s;
+		}
+		misses.incrementAndGet();
 		try {
-			return connection.createSession(false, QueueSession.AUTO_ACKNOWLEDGE);
+			Session session = connection.createSession(false, QueueSession.AUTO_ACKNOWLEDGE);
+			s = new PooledSession(session, defaultQueue, testQueue);
+			open.incrementAndGet();
+			return s;
 		} catch (JMSException ex) {
 			throw new IllegalStateException(ex);
 		}
 	}
 
-	public MessageProducer getDefaultProducer(Session session) {
-		try {
-			return session.createProducer(defaultQueue);
-		} catch (JMSException ex) {
-			throw new IllegalStateException(ex);
+	void releaseSession(PooledSession s) {
+		if (s.isBroken() || !idle.offerFirst(s)) {
+			open.decrementAndGet();
+			s.close();
 		}
 	}
 
-	public MessageProducer getTestProducer(Session session) {
+	/**
+	 * Takes the messages matching the selector off the default queue, and sends them back with the
+	 * given property changed. Each message is moved in its own transaction, so that none are lost
+	 * if this node fails midway. Scheduled messages are only seen once they are due.
+	 * 
+	 * @return Number of moved messages.
+	 */
+	int retag(String selector, String property, String value) {
+		int count = 0;
+		Session session = null;
 		try {
-			return session.createProducer(testQueue);
+			session = connection.createSession(true, Session.SESSION_TRANSACTED);
+			MessageConsumer consumer = session.createConsumer(defaultQueue, selector);
+			MessageProducer producer = session.createProducer(defaultQueue);
+			Message msg;
+			while ((msg = consumer.receive(RECEIVE_TIMEOUT)) != null) {
+				String oldValue = msg.getStringProperty(property);
+				copyProperties(msg);
+				msg.setStringProperty(property, value);
+				// otherwise the broker drops it as a duplicate of the original send
+				String dupId = msg.getStringProperty(DUPLICATE_ID);
+				if (dupId != null) {
+					msg.setStringProperty(DUPLICATE_ID, dupId + "/" + oldValue);
+				}
+				long ttl = 0;
+				if (msg.getJMSExpiration() > 0) {
+					ttl = Math.max(1, msg.getJMSExpiration() - System.currentTimeMillis());
+				}
+				producer.send(msg, msg.getJMSDeliveryMode(), msg.getJMSPriority(), ttl);
+				session.commit();
+				++count;
+			}
 		} catch (JMSException ex) {
-			throw new IllegalStateException(ex);
+			LOG.warn("Cannot move the messages selected by [" + selector + "].", ex);
+		} finally {
+			if (session != null) {
+				try {
+					session.close();
+				} catch (JMSException ex) {
+					LOG.warn("Exception while closing a JMS session.", ex);
+				}
+			}
 		}
+		return count;
+	}
+
+	/**
+	 * The properties of a received message are read-only, they can only be cleared and set anew.
+	 */
+	private static void copyProperties(Message msg) throws JMSException {
+		Map<String, Object> props = new HashMap<>();
+		Enumeration<?> names = msg.getPropertyNames();
+		while (names.hasMoreElements()) {
+			String name = (String) names.nextElement();
+			// the broker sets the other JMSX properties itself, and refuses them from clients
+			if (!name.startsWith("JMSX") || name.equals("JMSXGroupID")) {
+				props.put(name, msg.getObjectProperty(name));
+			}
+		}
+		msg.clearProperties();
+		for (Map.Entry<String, Object> e : props.entrySet()) {
+			msg.setObjectProperty(e.getKey(), e.getValue());
+		}
+	}
+
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new HashMap<>();
+		stats.put("jms.sessions.open", (long) open.get());
+		stats.put("jms.sessions.idle", (long) idle.size());
+		stats.put("jms.pool.hits", hits.get());
+		stats.put("jms.pool.misses", misses.get());
+		return stats;
 	}
 }
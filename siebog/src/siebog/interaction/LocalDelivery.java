@@ -0,0 +1,260 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ejb.LocalBean;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+import siebog.agents.AID;
+import siebog.agents.Agent;
+import siebog.agents.Passivator;
+import siebog.utils.ExecutorService;
+
+/**
+ * Keeps track of agents hosted on this node. Each of these agents owns a bounded mailbox:
+ * messages addressed to it are enqueued, bypassing JMS if sent from this node, and a single
+ * drainer delivers them one by one. This way, concurrent senders and MDB threads never block on
+ * the agent's own lock.
+ * 
+ * Each mailbox accepts at most "siebog.flow.credits" pending messages per lane, after which the
+ * "siebog.flow.policy" system property decides whether senders wait for up to
+ * "siebog.mailbox.timeout" milliseconds (BLOCK, the default), are refused (REJECT), or are
+ * accepted and notified, up to the hard limit of "siebog.mailbox.capacity" (SIGNAL). See
+ * {@link FlowPolicy}. Drainers and MDB threads never wait: a blocked drainer stalls its own
+ * agent, and can deadlock with the agent it sends to, while the broker redelivers an MDB's
+ * message later anyway.
+ * 
+ * Setting "siebog.mailbox.batch" to a value greater than 1 enables the batching mode, in which
+ * up to that many pending messages are handed to the agent with a single call to
+ * {@link Agent#handleMessages(java.util.List)}. The drainer waits at most
+ * "siebog.mailbox.linger" microseconds for a batch to fill up (0 by default). Messages already
+ * taken into a batch are no longer visible to the agent's receiveNoWait and receiveWait.
+ */
+@Singleton
+@LocalBean
+@Lock(LockType.READ)
+public class LocalDelivery {
+	private static final int CAPACITY = Integer.getInteger("siebog.mailbox.capacity", 10000);
+	private static final int CREDITS = Integer.getInteger("siebog.flow.credits", CAPACITY);
+	private static final FlowPolicy POLICY = FlowPolicy.valueOf(System.getProperty(
+			"siebog.flow.policy", FlowPolicy.BLOCK.name()).toUpperCase());
+	private static final long OFFER_TIMEOUT = Long.getLong("siebog.mailbox.timeout", 5000);
+	private static final int BATCH_SIZE = Integer.getInteger("siebog.mailbox.batch", 1);
+	private static final long LINGER = Long.getLong("siebog.mailbox.linger", 0);
+	private final ConcurrentMap<AID, Mailbox> mailboxes = new ConcurrentHashMap<>();
+	private final AtomicLong throttled = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	@Inject
+	private ExecutorService executor;
+	@Inject
+	private ReplyCorrelator correlator;
+	@Inject
+	private Passivator passivator;
+	private final Mailbox.Activator activator = new Mailbox.Activator() {
+		@Override
+		public Agent activate(AID aid) {
+			return passivator.activate(aid);
+		}
+	};
+
+	public void register(AID aid, Agent agent) {
+		// with SIGNAL, credits are only a soft limit
+		int capacity = POLICY == FlowPolicy.SIGNAL ? Math.max(CAPACITY, CREDITS) : CREDITS;
+		mailboxes.put(aid, new Mailbox(aid, agent, capacity, BATCH_SIZE, LINGER,
+				activator));
+	}
+
+	public void deregister(AID aid) {
+		mailboxes.remove(aid);
+	}
+
+	public boolean isLocal(AID aid) {
+		return mailboxes.containsKey(aid);
+	}
+
+	/**
+	 * Enqueues the message for a local agent.
+	 * 
+	 * @return False if the agent is not hosted on this node, in which case the message needs to be
+	 *         sent through JMS.
+	 * @throws MailboxFullException If the agent has no credits left, see {@link FlowPolicy}.
+	 */
+	public boolean deliver(ACLMessage msg, AID aid) {
+		return deliver(msg, aid, true);
+	}
+
+	/**
+	 * @param mayBlock If false, a full mailbox is reported right away, even under
+	 *            {@link FlowPolicy#BLOCK}.
+	 */
+	public boolean deliver(ACLMessage msg, AID aid, boolean mayBlock) {
+		Mailbox mailbox = mailboxes.get(aid);
+		if (mailbox == null) {
+			return false;
+		}
+		if (correlator.complete(aid, msg)) {
+			return true;
+		}
+		try {
+			boolean block = mayBlock && POLICY == FlowPolicy.BLOCK && !Mailbox.isDrainerThread();
+			if (!mailbox.offer(msg, block ? OFFER_TIMEOUT : 0)) {
+				rejected.incrementAndGet();
+				throw new MailboxFullException(aid);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while delivering to " + aid.getStr());
+		}
+		if (mailbox.size() > CREDITS) {
+			throttled.incrementAndGet();
+		}
+		if (mailbox.markScheduled()) {
+			scheduleDrain(mailbox);
+		}
+		return true;
+	}
+
+	/**
+	 * Detaches an idle agent from its mailbox, so that it can be passivated. Until
+	 * {@link #attach(AID, Agent)} is called, messages are queued, but not delivered.
+	 * 
+	 * @return The detached agent, or null if the agent is not idle.
+	 */
+	public Agent detachIfIdle(AID aid, long idleMillis) {
+		Mailbox mailbox = mailboxes.get(aid);
+		if (mailbox == null || !mailbox.isIdle(idleMillis) || !mailbox.markScheduled()) {
+			return null;
+		}
+		Agent agent = mailbox.detach();
+		if (agent == null) {
+			release(mailbox);
+		}
+		return agent;
+	}
+
+	/**
+	 * Completes {@link #detachIfIdle(AID, long)}.
+	 * 
+	 * @param agent The agent to deliver messages to, or null if it was passivated, in which case
+	 *            it's activated with the next message.
+	 */
+	public void attach(AID aid, Agent agent) {
+		Mailbox mailbox = mailboxes.get(aid);
+		if (mailbox != null) {
+			mailbox.attach(agent);
+			release(mailbox);
+		}
+	}
+
+	/**
+	 * @return True if the local agent has used up its credits, so that senders should slow down.
+	 */
+	public boolean isThrottled(AID aid) {
+		Mailbox mailbox = mailboxes.get(aid);
+		return mailbox != null && mailbox.size() >= CREDITS;
+	}
+
+	public FlowPolicy getPolicy() {
+		return POLICY;
+	}
+
+	/**
+	 * @return Number of pending messages for each local agent with a non-empty mailbox.
+	 */
+	public Map<String, Integer> getQueueDepths() {
+		Map<String, Integer> depths = new HashMap<>();
+		for (Mailbox mailbox : mailboxes.values()) {
+			int size = mailbox.size();
+			if (size > 0) {
+				depths.put(mailbox.getAid().getStr(), size);
+			}
+		}
+		return depths;
+	}
+
+	public Map<String, Long> getStats() {
+		long pending = 0;
+		long maxDepth = 0;
+		long coalesced = 0;
+		for (Mailbox mailbox : mailboxes.values()) {
+			int size = mailbox.size();
+			pending += size;
+			maxDepth = Math.max(maxDepth, size);
+			coalesced += mailbox.getCoalesced();
+		}
+		Map<String, Long> stats = new HashMap<>();
+		stats.put("mailbox.agents", (long) mailboxes.size());
+		stats.put("mailbox.pending", pending);
+		stats.put("mailbox.maxDepth", maxDepth);
+		stats.put("mailbox.throttled", throttled.get());
+		stats.put("mailbox.rejected", rejected.get());
+		stats.put("mailbox.coalesced", coalesced);
+		return stats;
+	}
+
+	/**
+	 * Takes the next pending message of a local agent, if any, before it gets dispatched.
+	 */
+	public ACLMessage receive(AID aid) {
+		Mailbox mailbox = mailboxes.get(aid);
+		return mailbox != null ? mailbox.poll() : null;
+	}
+
+	/**
+	 * Waits for the next message of a local agent, at most for the given number of milliseconds.
+	 */
+	public ACLMessage receive(AID aid, long timeoutMillis) {
+		Mailbox mailbox = mailboxes.get(aid);
+		if (mailbox == null) {
+			return null;
+		}
+		try {
+			return mailbox.poll(timeoutMillis);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	private void release(Mailbox mailbox) {
+		if (mailbox.release()) {
+			scheduleDrain(mailbox);
+		}
+	}
+
+	private void scheduleDrain(final Mailbox mailbox) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (mailbox.drain()) {
+					scheduleDrain(mailbox);
+				}
+			}
+		});
+	}
+}
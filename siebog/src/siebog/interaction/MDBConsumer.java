@@ -1,8 +1,10 @@
 package siebog.interaction;
 
+import java.io.IOException;
 import javax.ejb.ActivationConfigProperty;
 import javax.ejb.MessageDriven;
 import javax.inject.Inject;
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
@@ -12,15 +14,24 @@ import org.slf4j.LoggerFactory;
 import siebog.agents.AID;
 import siebog.agents.Agent;
 import siebog.agents.AgentManagerBean;
+import siebog.interaction.codec.MessageCodecs;
 
 @MessageDriven(name = "MDBConsumer", activationConfig = {
 		@ActivationConfigProperty(propertyName = "destinationLookup", propertyValue = "queue/siebog"),
 		@ActivationConfigProperty(propertyName = "destinationType", propertyValue = "javax.jms.Queue"),
-		@ActivationConfigProperty(propertyName = "acknowledgeMode", propertyValue = "Auto-acknowledge") })
+		@ActivationConfigProperty(propertyName = "acknowledgeMode", propertyValue = "Auto-acknowledge"),
+		// only messages for agents on this node, see NodeRouter
+		@ActivationConfigProperty(propertyName = "messageSelector", propertyValue = "siebogNode IS NULL OR siebogNode = '' OR siebogNode = '${jboss.node.name}'") })
 public class MDBConsumer implements MessageListener {
 	private static final Logger LOG = LoggerFactory.getLogger(MDBConsumer.class);
 	@Inject
 	private AgentManagerBean agm;
+	@Inject
+	private LocalDelivery localDelivery;
+	@Inject
+	private DeadLetterOffice deadLetters;
+	@Inject
+	private DuplicateFilter duplicates;
 
 	@Override
 	public void onMessage(Message msg) {
@@ -32,22 +43,81 @@ public class MDBConsumer implements MessageListener {
 	}
 
 	private void processMessage(Message msg) throws JMSException {
-		ACLMessage acl = (ACLMessage) ((ObjectMessage) msg).getObject();
-		AID aid = getAid(msg, acl);
-		deliverMessage(acl, aid);
+		ACLMessage acl = getAclMessage(msg);
+		String msgId = msg.getStringProperty(DuplicateFilter.ID_PROPERTY);
+		String indices = msg.getStringProperty("AIDIndices");
+		if (indices != null) {
+			// batched message, fan it out to all listed receivers
+			for (String i : indices.split(",")) {
+				deliverOnce(acl, Integer.parseInt(i), msgId);
+			}
+		} else {
+			deliverOnce(acl, msg.getIntProperty("AIDIndex"), msgId);
+		}
+	}
+
+	/**
+	 * Skips deliveries which have already been made, e.g. if the message is redelivered after a
+	 * failover, or after a batch was only partially delivered.
+	 */
+	private void deliverOnce(ACLMessage acl, int index, String msgId) {
+		AID aid = acl.receivers.get(index);
+		if (msgId == null) {
+			// posted by an older node
+			deliverMessage(acl, aid);
+			return;
+		}
+		String key = DuplicateFilter.getKey(msgId, index);
+		if (!duplicates.accept(key)) {
+			LOG.debug("Dropping duplicate message {} to {}.", msgId, aid);
+			return;
+		}
+		try {
+			deliverMessage(acl, aid);
+		} catch (RuntimeException ex) {
+			// not delivered after all, let the redelivered message through
+			duplicates.failed(key);
+			throw ex;
+		}
 	}
 
-	private AID getAid(Message msg, ACLMessage acl) throws JMSException {
-		int i = msg.getIntProperty("AIDIndex");
-		return acl.receivers.get(i);
+	private ACLMessage getAclMessage(Message msg) throws JMSException {
+		if (msg instanceof BytesMessage) {
+			BytesMessage bytes = (BytesMessage) msg;
+			byte[] data = new byte[(int) bytes.getBodyLength()];
+			bytes.readBytes(data);
+			try {
+				return MessageCodecs.get(msg.getStringProperty("codec")).decode(data);
+			} catch (IOException | IllegalArgumentException ex) {
+				JMSException jmsEx = new JMSException("Cannot decode the message: " + ex.getMessage());
+				jmsEx.setLinkedException(ex);
+				throw jmsEx;
+			}
+		}
+		return (ACLMessage) ((ObjectMessage) msg).getObject();
 	}
 
 	private void deliverMessage(ACLMessage msg, AID aid) {
+		// agents hosted on this node receive all messages through their mailboxes; if the mailbox
+		// is full, the exception rolls back the JMS delivery and the broker retries later, instead
+		// of this thread waiting, unless the overloaded agent is supposed to refuse messages
+		try {
+			if (localDelivery.deliver(msg, aid, false)) {
+				return;
+			}
+		} catch (MailboxFullException ex) {
+			if (localDelivery.getPolicy() != FlowPolicy.REJECT) {
+				throw ex;
+			}
+			deadLetters.add(msg, aid, DeadLetterOffice.OVERLOADED);
+			return;
+		}
 		Agent agent = agm.getAgentReference(aid);
 		if (agent != null) {
 			agent.handleMessage(msg);
 		} else {
 			LOG.info("No such agent: {}", aid.getName());
+			deadLetters.add(msg, aid, DeadLetterOffice.UNDELIVERABLE);
 		}
 	}
 }
@@ -0,0 +1,239 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import siebog.agents.AID;
+import siebog.agents.Agent;
+
+/**
+ * Bounded mailbox of a single agent hosted on this node. Any number of threads can add messages,
+ * while at most one drain is active at any given time, so messages are handed to the agent one by
+ * one: high-priority messages first, and the rest in the order of arrival.
+ * 
+ * The agent can be detached from the mailbox while it's passivated. Messages keep arriving, and
+ * the next drain activates the agent first.
+ */
+class Mailbox {
+	interface Activator {
+		Agent activate(AID aid);
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(Mailbox.class);
+	// maximum number of messages delivered in a single drain, so that a busy agent cannot
+	// occupy an executor thread indefinitely
+	private static final int MAX_DRAIN = 64;
+	// the mailbox drained by the current thread, if any
+	private static final ThreadLocal<Mailbox> draining = new ThreadLocal<>();
+	private final AID aid;
+	private final Activator activator;
+	private volatile Agent agent;
+	private volatile long lastActive;
+	private final MessageQueue queue;
+	private final AtomicBoolean scheduled;
+	private final int batchSize;
+	private final long lingerMicros;
+
+	/**
+	 * @param batchSize If greater than 1, up to this many messages are delivered with a single call
+	 *            to {@link Agent#handleMessages(List)}.
+	 * @param lingerMicros How long to wait for a batch to fill up before delivering it.
+	 */
+	public Mailbox(AID aid, Agent agent, int capacity, int batchSize, long lingerMicros,
+			Activator activator) {
+		this.aid = aid;
+		this.agent = agent;
+		this.activator = activator;
+		lastActive = System.currentTimeMillis();
+		this.batchSize = batchSize;
+		this.lingerMicros = lingerMicros;
+		queue = new MessageQueue(capacity);
+		scheduled = new AtomicBoolean();
+	}
+
+	/**
+	 * Adds the message, waiting for free space if its lane of the mailbox is full.
+	 * 
+	 * @return False if the mailbox remained full for the whole timeout.
+	 */
+	public boolean offer(ACLMessage msg, long timeoutMillis) throws InterruptedException {
+		lastActive = System.currentTimeMillis();
+		return queue.offer(msg, timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return True if the caller needs to schedule a drain of this mailbox.
+	 */
+	public boolean markScheduled() {
+		return scheduled.compareAndSet(false, true);
+	}
+
+	/**
+	 * Delivers pending messages to the agent.
+	 * 
+	 * @return True if there are more messages and the caller needs to schedule another drain.
+	 */
+	public boolean drain() {
+		if (agent == null) {
+			try {
+				agent = activator.activate(aid);
+			} catch (Exception ex) {
+				// the messages stay, the next one to arrive retries
+				LOG.warn("Cannot activate {}.", aid, ex);
+				scheduled.set(false);
+				return false;
+			}
+		}
+		draining.set(this);
+		try {
+			if (batchSize > 1) {
+				drainBatch();
+			} else {
+				drainSingle();
+			}
+		} finally {
+			draining.remove();
+		}
+		lastActive = System.currentTimeMillis();
+		return release();
+	}
+
+	/**
+	 * @return True if the current thread is delivering messages to an agent.
+	 */
+	static boolean isDrainerThread() {
+		return draining.get() != null;
+	}
+
+	/**
+	 * Ends a drain, or a detachment, started by a successful call to {@link #markScheduled()}.
+	 * 
+	 * @return True if there are more messages and the caller needs to schedule another drain.
+	 */
+	public boolean release() {
+		scheduled.set(false);
+		return !queue.isEmpty() && markScheduled();
+	}
+
+	/**
+	 * @return True if no messages arrived or were delivered in the given time.
+	 */
+	public boolean isIdle(long idleMillis) {
+		return agent != null && queue.isEmpty()
+				&& System.currentTimeMillis() - lastActive >= idleMillis;
+	}
+
+	/**
+	 * Must be called between a successful {@link #markScheduled()} and {@link #release()}, so
+	 * that no drain is in progress.
+	 * 
+	 * @return The detached agent, or null if there are pending messages.
+	 */
+	public Agent detach() {
+		if (!queue.isEmpty()) {
+			return null;
+		}
+		Agent old = agent;
+		agent = null;
+		return old;
+	}
+
+	/**
+	 * Must be called between a successful {@link #markScheduled()} and {@link #release()}.
+	 */
+	public void attach(Agent agent) {
+		this.agent = agent;
+	}
+
+	private void drainSingle() {
+		ACLMessage msg;
+		int n = 0;
+		while (n++ < MAX_DRAIN && (msg = queue.poll()) != null) {
+			try {
+				agent.handleMessage(msg);
+			} catch (Exception ex) {
+				LOG.warn("Error while delivering a message to {}.", aid, ex);
+			}
+		}
+	}
+
+	private void drainBatch() {
+		List<ACLMessage> batch = nextBatch();
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			agent.handleMessages(batch);
+		} catch (Exception ex) {
+			LOG.warn("Error while delivering {} messages to {}.", batch.size(), aid, ex);
+		}
+	}
+
+	private List<ACLMessage> nextBatch() {
+		List<ACLMessage> batch = new ArrayList<>(Math.min(batchSize, queue.size() + 1));
+		queue.drainTo(batch, batchSize);
+		if (lingerMicros > 0 && batch.size() < batchSize) {
+			final long deadline = System.nanoTime() + lingerMicros * 1000;
+			long left;
+			try {
+				while (batch.size() < batchSize && (left = deadline - System.nanoTime()) > 0) {
+					ACLMessage msg = queue.poll(left, TimeUnit.NANOSECONDS);
+					if (msg == null) {
+						break;
+					}
+					batch.add(msg);
+					queue.drainTo(batch, batchSize - batch.size());
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return batch;
+	}
+
+	/**
+	 * Removes the next message before it gets dispatched to the agent.
+	 */
+	public ACLMessage poll() {
+		return queue.poll();
+	}
+
+	public ACLMessage poll(long timeoutMillis) throws InterruptedException {
+		return queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public long getCoalesced() {
+		return queue.getCoalesced();
+	}
+
+	public int size() {
+		return queue.size();
+	}
+
+	public AID getAid() {
+		return aid;
+	}
+}
@@ -0,0 +1,35 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import siebog.agents.AID;
+
+/**
+ * Thrown when a message cannot be placed into the receiver's mailbox, because the receiver has
+ * run out of credits (see {@link FlowPolicy}).
+ */
+public class MailboxFullException extends IllegalStateException {
+	private static final long serialVersionUID = 1L;
+
+	public MailboxFullException(AID aid) {
+		super("Mailbox of agent " + aid.getStr() + " is full.");
+	}
+}
@@ -20,6 +20,10 @@
 
 package siebog.interaction;
 
+import java.util.List;
+import java.util.concurrent.Future;
+import siebog.agents.AID;
+
 /**
  * Remote interface of the message manager.
  *
@@ -32,5 +36,57 @@ public interface MessageManager {
 
 	void post(ACLMessage message, long delayMillisec);
 
+	/**
+	 * Posts the message without waiting for it to be sent. The returned future completes once all
+	 * receivers have accepted the message, or the broker has taken it for delivery. Unlike post,
+	 * failures are not only logged: the future fails with the underlying cause.
+	 */
+	Future<DeliveryReceipt> postAsync(ACLMessage message);
+
+	/**
+	 * Posts the message with a delay, returning a handle which can be used to cancel it. Delayed
+	 * messages to agents hosted on this node are kept in memory and can be cancelled, while those
+	 * to agents on other nodes are scheduled by the broker and will be delivered regardless.
+	 * 
+	 * @return Handle of the delivery, or 0 if none of the receivers is hosted on this node.
+	 */
+	long schedule(ACLMessage message, long delayMillisec);
+
+	/**
+	 * Cancels a delivery scheduled on this node.
+	 * 
+	 * @return False if the handle is unknown, or the message has already been delivered.
+	 */
+	boolean cancel(long handle);
+
+	/**
+	 * Posts the message to all of its receivers, serializing it only once. Receivers hosted on
+	 * this node get the message directly, while the rest share a single transport message which
+	 * is fanned out by the consuming node. Unlike post, the order of messages sent to the same
+	 * receiver by different senders is not guaranteed, so this is best used for broadcasts.
+	 */
+	void postBatch(ACLMessage message);
+
+	/**
+	 * Subscribes the agent to the named topic, creating the topic if necessary.
+	 */
+	void subscribe(String topic, AID aid);
+
+	void unsubscribe(String topic, AID aid);
+
+	/**
+	 * @return Current subscribers of the topic.
+	 */
+	List<AID> getSubscribers(String topic);
+
+	/**
+	 * Posts the message to all subscribers of the topic, except for its sender, in the same way as
+	 * {@link #postBatch(ACLMessage)}. A copy addressed to the subscribers is posted, the message
+	 * itself is left unchanged.
+	 * 
+	 * @return Number of receivers.
+	 */
+	int publish(String topic, ACLMessage message);
+
 	String ping();
 }
\ No newline at end of file
@@ -20,19 +20,24 @@
 
 package siebog.interaction;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
 import javax.annotation.PostConstruct;
-import javax.annotation.PreDestroy;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
 import javax.ejb.LocalBean;
 import javax.ejb.Remote;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
+import javax.jms.Message;
 import javax.jms.MessageProducer;
-import javax.jms.ObjectMessage;
-import javax.jms.Session;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.GET;
@@ -43,6 +48,10 @@ import javax.ws.rs.core.MediaType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import siebog.agents.AID;
+import siebog.agents.AgentRegistry;
+import siebog.agents.Passivator;
+import siebog.interaction.codec.MessageCodec;
+import siebog.interaction.codec.MessageCodecs;
 
 /**
  * Default message manager implementation.
@@ -60,22 +69,29 @@ public class MessageManagerBean implements MessageManager {
 	private static final Logger LOG = LoggerFactory.getLogger(MessageManagerBean.class);
 	@Inject
 	private JMSFactory factory;
-	private Session session;
-	private MessageProducer defaultProducer;
-	private MessageProducer testProducer;
+	@Inject
+	private LocalDelivery localDelivery;
+	@Inject
+	private DelayedDelivery delayedDelivery;
+	@Inject
+	private AgentRegistry registry;
+	@Inject
+	private DeadLetterOffice deadLetters;
+	@Inject
+	private TopicRegistry topics;
+	@Inject
+	private NodeRouter router;
+	@Inject
+	private DuplicateFilter duplicates;
+	@Inject
+	private ShardRouter shards;
+	@Inject
+	private Passivator passivator;
+	private MessageCodec codec;
 
 	@PostConstruct
 	public void postConstruct() {
-		session = factory.getSession();
-		defaultProducer = factory.getDefaultProducer(session);
-	}
-
-	@PreDestroy
-	public void preDestroy() {
-		try {
-			session.close();
-		} catch (JMSException e) {
-		}
+		codec = MessageCodecs.getDefault();
 	}
 
 	@GET
@@ -88,6 +104,45 @@ public class MessageManagerBean implements MessageManager {
 		return list;
 	}
 
+	@GET
+	@Path("/stats")
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = factory.getStats();
+		stats.putAll(localDelivery.getStats());
+		stats.putAll(duplicates.getStats());
+		stats.putAll(registry.getStats());
+		stats.putAll(passivator.getStats());
+		for (Map.Entry<String, Long> e : deadLetters.getCounters().entrySet()) {
+			stats.put("deadletters." + e.getKey(), e.getValue());
+		}
+		return stats;
+	}
+
+	/**
+	 * @return Number of pending messages of each agent hosted on this node, omitting agents with
+	 *         empty mailboxes.
+	 */
+	@GET
+	@Path("/mailboxes")
+	public Map<String, Integer> getQueueDepths() {
+		return localDelivery.getQueueDepths();
+	}
+
+	/**
+	 * @return Number of subscribers of each topic.
+	 */
+	@GET
+	@Path("/topics")
+	public Map<String, Integer> getTopics() {
+		return topics.getTopics();
+	}
+
+	@GET
+	@Path("/deadletters")
+	public List<DeadLetter> getDeadLetters() {
+		return deadLetters.getRecent();
+	}
+
 	@POST
 	@Path("/")
 	@Consumes(MediaType.APPLICATION_FORM_URLENCODED)
@@ -98,55 +153,273 @@ public class MessageManagerBean implements MessageManager {
 
 	@Override
 	public void post(ACLMessage msg, long delayMillisec) {
-		// TODO : Check if the agent/subscriber exists
-		// http://hornetq.sourceforge.net/docs/hornetq-2.0.0.BETA5/user-manual/en/html/management.html#d0e5742
+		send(msg, delayMillisec, false);
+	}
+
+	@Asynchronous
+	@Override
+	public Future<DeliveryReceipt> postAsync(ACLMessage msg) {
+		return new AsyncResult<>(send(msg, 0, true));
+	}
+
+	@Override
+	public long schedule(ACLMessage msg, long delayMillisec) {
+		return send(msg, delayMillisec, false).getTimerHandle();
+	}
+
+	@Override
+	public boolean cancel(long handle) {
+		return delayedDelivery.cancel(handle);
+	}
+
+	@Override
+	public void postBatch(ACLMessage original) {
+		ACLMessage msg = shards.resolve(original);
+		// remote receivers are grouped by the node which consumes their messages
+		Map<String, StringBuilder> remote = new HashMap<>();
 		for (int i = 0; i < msg.receivers.size(); i++) {
-			if (msg.receivers.get(i) == null) {
+			AID aid = msg.receivers.get(i);
+			if (aid == null) {
 				throw new IllegalArgumentException("AID cannot be null.");
 			}
-			postToReceiver(msg, i, delayMillisec);
+			if (!receiverExists(msg, aid, false)) {
+				continue;
+			}
+			boolean delivered;
+			try {
+				delivered = canDeliverLocally(msg) && localDelivery.deliver(msg, aid);
+			} catch (MailboxFullException ex) {
+				deadLetters.add(msg, aid, DeadLetterOffice.OVERLOADED);
+				continue;
+			}
+			if (!delivered) {
+				String node = router.route(aid);
+				StringBuilder indices = remote.get(node);
+				if (indices == null) {
+					remote.put(node, indices = new StringBuilder());
+				} else {
+					indices.append(',');
+				}
+				indices.append(i);
+			}
+		}
+		if (!remote.isEmpty()) {
+			PooledSession session = factory.borrowSession();
+			try {
+				postToReceivers(session, msg, remote);
+			} finally {
+				factory.releaseSession(session);
+			}
 		}
 	}
 
+	@Override
+	public void subscribe(String topic, AID aid) {
+		topics.subscribe(topic, aid);
+	}
+
+	@Override
+	public void unsubscribe(String topic, AID aid) {
+		topics.unsubscribe(topic, aid);
+	}
+
+	@Override
+	public List<AID> getSubscribers(String topic) {
+		return new ArrayList<>(topics.getSubscribers(topic));
+	}
+
+	@Override
+	public int publish(String topic, ACLMessage msg) {
+		Set<AID> subscribers = topics.getSubscribers(topic);
+		List<AID> receivers = new ArrayList<>(subscribers.size());
+		for (AID aid : subscribers) {
+			if (!aid.equals(msg.sender)) {
+				receivers.add(aid);
+			}
+		}
+		if (!receivers.isEmpty()) {
+			postBatch(msg.withReceivers(receivers));
+		}
+		return receivers.size();
+	}
+
 	@Override
 	public String ping() {
 		return "Pong from " + System.getProperty("jboss.node.name");
 	}
 
-	private void postToReceiver(ACLMessage msg, int index, long delayMillisec) {
-		AID aid = msg.receivers.get(index);
+	/**
+	 * Messages to agents which are not running are dead-lettered here, instead of being sent
+	 * through JMS only to be dropped by the consumer.
+	 * 
+	 * @param failFast If true, throws an exception instead of dead-lettering the message.
+	 */
+	private boolean receiverExists(ACLMessage msg, AID aid, boolean failFast) {
+		// test replies are addressed to clients outside of the cluster
+		if (MessageManager.REPLY_WITH_TEST.equals(msg.inReplyTo) || registry.isRunning(aid)) {
+			return true;
+		}
+		if (failFast) {
+			throw new IllegalArgumentException("No such agent: " + aid.getStr());
+		}
+		deadLetters.add(msg, aid, DeadLetterOffice.UNKNOWN_RECEIVER);
+		return false;
+	}
+
+	private boolean canDeliverLocally(ACLMessage msg) {
+		// test replies are consumed remotely
+		return !MessageManager.REPLY_WITH_TEST.equals(msg.inReplyTo);
+	}
+
+	/**
+	 * @param failFast If true, the first failure is rethrown, otherwise it is only logged and the
+	 *            message is still posted to the remaining receivers.
+	 */
+	private DeliveryReceipt send(ACLMessage original, long delayMillisec, boolean failFast) {
+		ACLMessage msg = shards.resolve(original);
+		int local = 0;
+		int remote = 0;
+		int throttled = 0;
+		List<AID> delayed = null;
+		PooledSession session = null;
+		Message jmsMsg = null;
 		try {
-			ObjectMessage jmsMsg = session.createObjectMessage(msg);
-			setupJmsMsg(jmsMsg, aid, index, delayMillisec);
-			getProducer(msg).send(jmsMsg);
+			for (int i = 0; i < msg.receivers.size(); i++) {
+				AID aid = msg.receivers.get(i);
+				if (aid == null) {
+					throw new IllegalArgumentException("AID cannot be null.");
+				}
+				if (!receiverExists(msg, aid, failFast)) {
+					continue;
+				}
+				if (canDeliverLocally(msg)) {
+					if (delayMillisec <= 0) {
+						try {
+							if (localDelivery.deliver(msg, aid)) {
+								++local;
+								if (localDelivery.isThrottled(aid)) {
+									++throttled;
+								}
+								continue;
+							}
+						} catch (MailboxFullException ex) {
+							if (failFast) {
+								throw ex;
+							}
+							deadLetters.add(msg, aid, DeadLetterOffice.OVERLOADED);
+							continue;
+						}
+					} else if (localDelivery.isLocal(aid)) {
+						// timers of local agents stay in memory, only remote ones go to the broker
+						if (delayed == null) {
+							delayed = new ArrayList<>();
+						}
+						delayed.add(aid);
+						++local;
+						continue;
+					}
+				}
+				if (session == null) {
+					session = factory.borrowSession();
+				}
+				try {
+					if (jmsMsg == null) {
+						// reused for the remaining receivers, so that the message is encoded once
+						jmsMsg = createJmsMessage(session, msg);
+					}
+					postToReceiver(session, msg, jmsMsg, i, delayMillisec);
+					++remote;
+				} catch (JMSException | IOException ex) {
+					if (ex instanceof JMSException) {
+						session.markBroken();
+					}
+					if (failFast) {
+						throw new IllegalStateException("Cannot post the message to " + aid.getStr(), ex);
+					}
+					LOG.warn(ex.getMessage());
+				}
+			}
+		} finally {
+			if (session != null) {
+				factory.releaseSession(session);
+			}
+		}
+		long handle = 0;
+		if (delayed != null) {
+			handle = delayedDelivery.schedule(msg, delayed, delayMillisec);
+		}
+		return new DeliveryReceipt(local, remote, throttled, handle);
+	}
+
+	private void postToReceiver(PooledSession session, ACLMessage msg, Message jmsMsg,
+			int index, long delayMillisec) throws JMSException {
+		setupJmsMsg(jmsMsg, msg.receivers.get(index), index, delayMillisec);
+		sendJmsMsg(session, msg, jmsMsg);
+	}
+
+	private void postToReceivers(PooledSession session, ACLMessage msg,
+			Map<String, StringBuilder> indicesByNode) {
+		try {
+			Message jmsMsg = createJmsMessage(session, msg);
+			// one copy per node, which then delivers it to each of the listed receivers
+			for (Map.Entry<String, StringBuilder> e : indicesByNode.entrySet()) {
+				jmsMsg.setStringProperty(NodeRouter.NODE_PROPERTY, e.getKey());
+				jmsMsg.setStringProperty("AIDIndices", e.getValue().toString());
+				jmsMsg.setStringProperty("_HQ_DUPL_ID",
+						jmsMsg.getStringProperty(DuplicateFilter.ID_PROPERTY) + "/" + e.getKey());
+				sendJmsMsg(session, msg, jmsMsg);
+			}
+		} catch (JMSException ex) {
+			session.markBroken();
+			LOG.warn(ex.getMessage());
 		} catch (Exception ex) {
 			LOG.warn(ex.getMessage());
 		}
 	}
 
-	private void setupJmsMsg(ObjectMessage jmsMsg, AID aid, int index, long delayMillisec)
+	private void sendJmsMsg(PooledSession session, ACLMessage msg, Message jmsMsg)
 			throws JMSException {
-		// TODO See message grouping in a cluster
-		// http://docs.jboss.org/hornetq/2.2.5.Final/user-manual/en/html/message-grouping.html
+		// the broker hands out higher-priority messages first
+		MessageProducer producer = getProducer(session, msg);
+		producer.send(jmsMsg, producer.getDeliveryMode(), MessagePriority.of(msg),
+				producer.getTimeToLive());
+	}
+
+	private Message createJmsMessage(PooledSession session, ACLMessage msg) throws JMSException,
+			IOException {
+		Message jmsMsg;
+		if (codec.supports(msg)) {
+			BytesMessage bytes = session.getSession().createBytesMessage();
+			bytes.writeBytes(codec.encode(msg));
+			bytes.setStringProperty("codec", codec.getName());
+			jmsMsg = bytes;
+		} else {
+			jmsMsg = session.getSession().createObjectMessage(msg);
+		}
+		jmsMsg.setStringProperty(DuplicateFilter.ID_PROPERTY, DuplicateFilter.nextId(msg));
+		return jmsMsg;
+	}
+
+	private void setupJmsMsg(Message jmsMsg, AID aid, int index, long delayMillisec)
+			throws JMSException {
+		// the receiver's node consumes the message, see NodeRouter; the group keeps the messages
+		// of one receiver in order within that node
+		jmsMsg.setStringProperty(NodeRouter.NODE_PROPERTY, router.route(aid));
 		jmsMsg.setStringProperty("JMSXGroupID", aid.getStr());
 		jmsMsg.setIntProperty("AIDIndex", index);
-		jmsMsg.setStringProperty("_HQ_DUPL_ID", UUID.randomUUID().toString());
+		// deterministic, so that the broker recognizes a send retried after failover
+		jmsMsg.setStringProperty("_HQ_DUPL_ID", DuplicateFilter.getKey(
+				jmsMsg.getStringProperty(DuplicateFilter.ID_PROPERTY), index));
 		if (delayMillisec > 0) {
 			jmsMsg.setLongProperty("_HQ_SCHED_DELIVERY", System.currentTimeMillis() + delayMillisec);
 		}
 	}
 
-	private MessageProducer getProducer(ACLMessage msg) {
+	private MessageProducer getProducer(PooledSession session, ACLMessage msg)
+			throws JMSException {
 		if (MessageManager.REPLY_WITH_TEST.equals(msg.inReplyTo)) {
-			return getTestProducer();
-		}
-		return defaultProducer;
-	}
-
-	private MessageProducer getTestProducer() {
-		if (testProducer == null) {
-			testProducer = factory.getTestProducer(session);
+			return session.getTestProducer();
 		}
-		return testProducer;
+		return session.getDefaultProducer();
 	}
 }
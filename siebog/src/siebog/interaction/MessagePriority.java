@@ -0,0 +1,60 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+/**
+ * Delivery priorities of ACL messages. They follow the JMS scale, from 0 (lowest) to 9
+ * (highest), where priorities of {@link #HIGH} and above are expedited: they are placed into a
+ * separate lane of the receiver's mailbox, which is drained first.
+ */
+public abstract class MessagePriority {
+	/** The priority is derived from the performative, see {@link #of(ACLMessage)}. */
+	public static final int UNSET = -1;
+	public static final int LOW = 1;
+	public static final int NORMAL = 4;
+	public static final int HIGH = 7;
+	public static final int MAX = 9;
+
+	/**
+	 * @return The explicitly set priority of the message. If not set, control messages that
+	 *         abort or fail an interaction (CANCEL and FAILURE) get HIGH priority, and all other
+	 *         messages NORMAL.
+	 */
+	public static int of(ACLMessage msg) {
+		if (msg.priority != UNSET) {
+			return Math.max(0, Math.min(msg.priority, MAX));
+		}
+		if (msg.performative != null) {
+			switch (msg.performative) {
+			case CANCEL:
+			case FAILURE:
+				return HIGH;
+			default:
+				break;
+			}
+		}
+		return NORMAL;
+	}
+
+	public static boolean isHigh(ACLMessage msg) {
+		return of(msg) >= HIGH;
+	}
+}
@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, blocking message queue with two lanes. High-priority messages (see
+ * {@link MessagePriority}) are taken before normal ones, but after {@link #MAX_HIGH_STREAK}
+ * consecutive high-priority messages a waiting normal message is let through, so that a steady
+ * stream of control messages cannot starve the rest. Each lane has its own capacity, so a queue
+ * full of bulk messages still accepts urgent ones.
+ * <p>
+ * A message with a coalescing key (see {@link ACLMessage#coalesceKey}) replaces a pending message
+ * with the same key in its lane. The replacement keeps the place of the original message and
+ * takes no extra capacity.
+ */
+class MessageQueue {
+	static final int MAX_HIGH_STREAK = 8;
+	private final int capacity;
+	private final ArrayDeque<ACLMessage> high = new ArrayDeque<>();
+	private final ArrayDeque<ACLMessage> normal = new ArrayDeque<>();
+	// latest version of each pending coalesced message, per lane
+	private final HashMap<String, ACLMessage> highLatest = new HashMap<>();
+	private final HashMap<String, ACLMessage> normalLatest = new HashMap<>();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition highNotFull = lock.newCondition();
+	private final Condition normalNotFull = lock.newCondition();
+	private int highStreak;
+	private long coalesced;
+
+	public MessageQueue(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive.");
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Adds the message, waiting for free space in its lane if necessary.
+	 * 
+	 * @return False if the lane remained full for the whole timeout.
+	 */
+	public boolean offer(ACLMessage msg, long timeout, TimeUnit unit) throws InterruptedException {
+		final boolean isHigh = MessagePriority.isHigh(msg);
+		final ArrayDeque<ACLMessage> lane = isHigh ? high : normal;
+		final HashMap<String, ACLMessage> latest = isHigh ? highLatest : normalLatest;
+		final Condition notFull = isHigh ? highNotFull : normalNotFull;
+		final String key = msg.coalesceKey;
+		final boolean coalescing = key != null && !key.isEmpty();
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			if (coalescing && latest.containsKey(key)) {
+				latest.put(key, msg);
+				++coalesced;
+				return true;
+			}
+			while (lane.size() >= capacity) {
+				if (nanos <= 0)
+					return false;
+				nanos = notFull.awaitNanos(nanos);
+				// the lock was released while waiting
+				if (coalescing && latest.containsKey(key)) {
+					latest.put(key, msg);
+					++coalesced;
+					return true;
+				}
+			}
+			if (coalescing)
+				latest.put(key, msg);
+			lane.add(msg);
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public ACLMessage poll() {
+		lock.lock();
+		try {
+			return take();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public ACLMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			ACLMessage msg;
+			while ((msg = take()) == null) {
+				if (nanos <= 0)
+					return null;
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return msg;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Moves up to max messages into the given collection, in the order they would be polled.
+	 * 
+	 * @return Number of moved messages.
+	 */
+	public int drainTo(Collection<ACLMessage> c, int max) {
+		lock.lock();
+		try {
+			int n = 0;
+			ACLMessage msg;
+			while (n < max && (msg = take()) != null) {
+				c.add(msg);
+				++n;
+			}
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int size() {
+		lock.lock();
+		try {
+			return high.size() + normal.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * @return Total number of messages which replaced a pending message with the same key.
+	 */
+	public long getCoalesced() {
+		lock.lock();
+		try {
+			return coalesced;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private ACLMessage take() {
+		if (!high.isEmpty() && (normal.isEmpty() || highStreak < MAX_HIGH_STREAK)) {
+			highStreak = normal.isEmpty() ? 0 : highStreak + 1;
+			highNotFull.signal();
+			return latest(high.poll(), highLatest);
+		}
+		highStreak = 0;
+		ACLMessage msg = normal.poll();
+		if (msg != null)
+			normalNotFull.signal();
+		return latest(msg, normalLatest);
+	}
+
+	private ACLMessage latest(ACLMessage msg, HashMap<String, ACLMessage> latest) {
+		if (msg == null || msg.coalesceKey == null || msg.coalesceKey.isEmpty())
+			return msg;
+		ACLMessage last = latest.remove(msg.coalesceKey);
+		return last != null ? last : msg;
+	}
+}
@@ -0,0 +1,258 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.LocalBean;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.inject.Inject;
+import org.infinispan.Cache;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryModifiedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
+import org.infinispan.notifications.cachemanagerlistener.annotation.ViewChanged;
+import org.infinispan.notifications.cachemanagerlistener.event.ViewChangedEvent;
+import org.infinispan.remoting.transport.Address;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import siebog.agents.AID;
+import siebog.utils.ExecutorService;
+import siebog.utils.GlobalCache;
+import siebog.utils.HashRing;
+
+/**
+ * Decides which node consumes the JMS messages of an agent. Each message is tagged with the
+ * {@link #NODE_PROPERTY} of its receiver's node, and each node's {@link MDBConsumer} only selects
+ * messages tagged for itself, or not tagged at all. This way a message is consumed where its
+ * receiver runs, instead of on any node and then passed on through a remote EJB proxy.
+ * <p>
+ * The node hosting an agent is recorded when the agent is started, next to its entry in the
+ * running-agents cache. Agents whose host is unknown, or no longer in the cluster, are assigned a
+ * home node by consistent hashing over the current cluster members, which keeps their messages
+ * together. Routing can be turned off with the "siebog.routing.affinity" system property.
+ * <p>
+ * The router starts with the deployment, so that the node joins the ring before it is sent any
+ * messages. When nodes leave the cluster, the coordinator moves the messages still tagged for
+ * them back to the queue as {@link #ANY_NODE}, so that they are not stranded.
+ */
+@Singleton
+@Startup
+@LocalBean
+@Lock(LockType.READ)
+public class NodeRouter {
+	public static final String NODE_PROPERTY = "siebogNode";
+	/** Tag of messages which can be consumed by any node. */
+	public static final String ANY_NODE = "";
+	private static final Logger LOG = LoggerFactory.getLogger(NodeRouter.class);
+	private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(
+			"siebog.routing.affinity", "true"));
+	private Cache<AID, String> hosts;
+	// local view of the hosts cache, kept up to date by its listener
+	private final Map<AID, String> hostView = new ConcurrentHashMap<>();
+	private HostsListener hostsListener;
+	// cluster address -> node name, the two need not be the same
+	private Cache<String, String> nodes;
+	private EmbeddedCacheManager manager;
+	private MembershipListener listener;
+	private volatile HashRing ring = new HashRing(new HashSet<String>());
+	@Inject
+	private JMSFactory factory;
+	@Inject
+	private ExecutorService executor;
+
+	@PostConstruct
+	public void postConstruct() {
+		hosts = GlobalCache.get().getAgentHosts();
+		hostsListener = new HostsListener();
+		hosts.addListener(hostsListener);
+		hostView.putAll(hosts);
+		nodes = GlobalCache.get().getClusterNodes();
+		manager = nodes.getCacheManager();
+		listener = new MembershipListener();
+		nodes.addListener(listener);
+		manager.addListener(listener);
+		nodes.put(String.valueOf(manager.getAddress()), getNodeName());
+		Set<String> departed = removeDeparted(manager.getMembers());
+		updateRing();
+		reroute(departed);
+	}
+
+	@PreDestroy
+	public void preDestroy() {
+		manager.removeListener(listener);
+		nodes.removeListener(listener);
+		hosts.removeListener(hostsListener);
+	}
+
+	/**
+	 * Records the node hosting a newly started agent.
+	 */
+	public void register(AID aid, String node) {
+		hosts.put(aid, node);
+	}
+
+	public void register(Map<AID, String> agentNodes) {
+		hosts.putAll(agentNodes);
+	}
+
+	public void deregister(AID aid) {
+		hosts.remove(aid);
+	}
+
+	/**
+	 * @return All agents registered as hosted by the given node.
+	 */
+	public List<AID> getHostedBy(String node) {
+		List<AID> list = new ArrayList<>();
+		for (Map.Entry<AID, String> e : hostView.entrySet()) {
+			if (node.equals(e.getValue())) {
+				list.add(e.getKey());
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * @return Name of the node which should consume messages for the agent, or {@link #ANY_NODE}.
+	 */
+	public String route(AID aid) {
+		if (!ENABLED)
+			return ANY_NODE;
+		final HashRing r = ring;
+		String node = hostView.get(aid);
+		if (node != null && r.getNodes().contains(node))
+			return node;
+		node = r.get(aid.getStr());
+		return node != null ? node : ANY_NODE;
+	}
+
+	/**
+	 * @return The node assigned to the agent by consistent hashing, regardless of where it runs.
+	 */
+	public String getHomeNode(AID aid) {
+		return ring.get(aid.getStr());
+	}
+
+	public Set<String> getNodes() {
+		return ring.getNodes();
+	}
+
+	public static String getNodeName() {
+		return System.getProperty("jboss.node.name");
+	}
+
+	private void updateRing() {
+		ring = new HashRing(new HashSet<>(nodes.values()));
+	}
+
+	/**
+	 * @return Names of the removed nodes.
+	 */
+	private Set<String> removeDeparted(Iterable<Address> members) {
+		Set<String> alive = new HashSet<>();
+		for (Address a : members)
+			alive.add(String.valueOf(a));
+		Set<String> departed = new HashSet<>();
+		for (Map.Entry<String, String> e : nodes.entrySet())
+			if (!alive.contains(e.getKey())) {
+				nodes.remove(e.getKey(), e.getValue());
+				departed.add(e.getValue());
+			}
+		return departed;
+	}
+
+	/**
+	 * Moves the messages tagged for departed nodes back to the queue, for any node to consume. Only
+	 * the coordinator does so, the other nodes would compete for the same messages.
+	 */
+	private void reroute(Set<String> departed) {
+		// a node which restarted under the same name consumes its messages itself
+		departed.removeAll(nodes.values());
+		if (departed.isEmpty() || !manager.isCoordinator())
+			return;
+		StringBuilder selector = new StringBuilder(NODE_PROPERTY).append(" IN (");
+		for (String node : departed) {
+			if (selector.charAt(selector.length() - 1) != '(')
+				selector.append(", ");
+			selector.append('\'').append(node.replace("'", "''")).append('\'');
+		}
+		final String sel = selector.append(')').toString();
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				int n = factory.retag(sel, NODE_PROPERTY, ANY_NODE);
+				LOG.info("Rerouted {} messages selected by [{}].", n, sel);
+			}
+		});
+	}
+
+	@Listener
+	public class MembershipListener {
+		@ViewChanged
+		public void viewChanged(ViewChangedEvent event) {
+			reroute(removeDeparted(event.getNewMembers()));
+		}
+
+		@CacheEntryCreated
+		@CacheEntryRemoved
+		public void nodesChanged(CacheEntryEvent<String, String> event) {
+			if (!event.isPre())
+				updateRing();
+		}
+	}
+
+	@Listener
+	public class HostsListener {
+		@CacheEntryCreated
+		public void entryCreated(CacheEntryCreatedEvent<AID, String> event) {
+			if (!event.isPre() && event.getValue() != null)
+				hostView.put(event.getKey(), event.getValue());
+		}
+
+		@CacheEntryModified
+		public void entryModified(CacheEntryModifiedEvent<AID, String> event) {
+			if (!event.isPre() && event.getValue() != null)
+				hostView.put(event.getKey(), event.getValue());
+		}
+
+		@CacheEntryRemoved
+		public void entryRemoved(CacheEntryRemovedEvent<AID, String> event) {
+			if (!event.isPre())
+				hostView.remove(event.getKey());
+		}
+	}
+}
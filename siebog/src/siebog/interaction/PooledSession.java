@@ -0,0 +1,81 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A JMS session, together with its producers, borrowed from {@link JMSFactory}. It should be used
+ * by one thread at a time, and returned to the factory once the thread is done sending.
+ */
+class PooledSession {
+	private static final Logger LOG = LoggerFactory.getLogger(PooledSession.class);
+	private final Session session;
+	private final MessageProducer defaultProducer;
+	private final Queue testQueue;
+	private MessageProducer testProducer;
+	private boolean broken;
+
+	public PooledSession(Session session, Queue defaultQueue, Queue testQueue) throws JMSException {
+		this.session = session;
+		this.testQueue = testQueue;
+		defaultProducer = session.createProducer(defaultQueue);
+	}
+
+	public Session getSession() {
+		return session;
+	}
+
+	public MessageProducer getDefaultProducer() {
+		return defaultProducer;
+	}
+
+	public MessageProducer getTestProducer() throws JMSException {
+		if (testProducer == null) {
+			testProducer = session.createProducer(testQueue);
+		}
+		return testProducer;
+	}
+
+	/**
+	 * Marks the session as unusable, so that it gets closed instead of returned to the pool.
+	 */
+	public void markBroken() {
+		broken = true;
+	}
+
+	public boolean isBroken() {
+		return broken;
+	}
+
+	public void close() {
+		try {
+			session.close();
+		} catch (JMSException ex) {
+			LOG.warn("Exception while closing a JMS session.", ex);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import javax.ejb.LocalBean;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+import siebog.agents.AID;
+import siebog.utils.ExecutorService;
+import siebog.utils.HashedWheelTimer.Timeout;
+
+/**
+ * Matches replies with outstanding requests made by agents hosted on this node. A request is
+ * identified by its replyWith value and the requesting agent, and completed by the first message
+ * sent to that agent with the matching inReplyTo value. Replies which arrive after the timeout
+ * are delivered to the agent as ordinary messages.
+ */
+@Singleton
+@LocalBean
+@Lock(LockType.READ)
+public class ReplyCorrelator {
+	private final ConcurrentMap<String, Request> requests = new ConcurrentHashMap<>();
+	@Inject
+	private ExecutorService executor;
+
+	/**
+	 * Registers an outstanding request, which needs to be done before the request is posted.
+	 * 
+	 * @return Future completed with the reply, or failed with {@link TimeoutException}.
+	 */
+	public Future<ACLMessage> register(AID requester, final String replyWith, long timeoutMillis) {
+		final Request req = new Request(requester);
+		if (requests.putIfAbsent(replyWith, req) != null) {
+			throw new IllegalStateException("Duplicate replyWith value: " + replyWith);
+		}
+		req.timeout = executor.newTimeout(new Runnable() {
+			@Override
+			public void run() {
+				if (requests.remove(replyWith, req)) {
+					req.future.completeExceptionally(new TimeoutException("No reply to "
+							+ replyWith));
+				}
+			}
+		}, timeoutMillis);
+		return req.future;
+	}
+
+	/**
+	 * Removes a request whose message could not be posted.
+	 */
+	public void cancel(String replyWith) {
+		Request req = requests.remove(replyWith);
+		if (req != null) {
+			req.timeout.cancel();
+			req.future.cancel(false);
+		}
+	}
+
+	/**
+	 * Completes the matching request, if any.
+	 * 
+	 * @return True if the message has been consumed as a reply, and should not be delivered.
+	 */
+	public boolean complete(AID receiver, ACLMessage msg) {
+		if (msg.inReplyTo == null || requests.isEmpty()) {
+			return false;
+		}
+		Request req = requests.get(msg.inReplyTo);
+		if (req == null || !req.requester.equals(receiver) || !requests.remove(msg.inReplyTo, req)) {
+			return false;
+		}
+		req.timeout.cancel();
+		req.future.complete(msg);
+		return true;
+	}
+
+	private static class Request {
+		final AID requester;
+		final CompletableFuture<ACLMessage> future = new CompletableFuture<>();
+		volatile Timeout timeout;
+
+		Request(AID requester) {
+			this.requester = requester;
+		}
+	}
+}
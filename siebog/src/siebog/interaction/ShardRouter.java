@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.LocalBean;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import org.infinispan.Cache;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryModifiedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
+import siebog.agents.AID;
+import siebog.agents.ShardGroup;
+import siebog.utils.GlobalCache;
+
+/**
+ * Replaces the logical AIDs of sharded agents in outgoing messages with the AIDs of the shards
+ * which should handle them. The groups are kept in a replicated cache, and mirrored locally, so
+ * that messages to ordinary agents pay only for an empty map lookup.
+ */
+@Singleton
+@LocalBean
+@Lock(LockType.READ)
+public class ShardRouter {
+	private final Map<AID, ShardGroup> groups = new ConcurrentHashMap<>();
+	private Cache<AID, ShardGroup> cache;
+	private ShardedAgentsListener listener;
+
+	@PostConstruct
+	public void postConstruct() {
+		cache = GlobalCache.get().getShardedAgents();
+		listener = new ShardedAgentsListener();
+		cache.addListener(listener);
+		groups.putAll(cache);
+	}
+
+	@PreDestroy
+	public void preDestroy() {
+		cache.removeListener(listener);
+	}
+
+	public void register(ShardGroup group) {
+		cache.put(group.getAid(), group);
+		groups.put(group.getAid(), group);
+	}
+
+	/**
+	 * @return The removed group, or null if the agent is not sharded.
+	 */
+	public ShardGroup deregister(AID aid) {
+		ShardGroup group = cache.remove(aid);
+		groups.remove(aid);
+		return group;
+	}
+
+	public ShardGroup getGroup(AID aid) {
+		return groups.get(aid);
+	}
+
+	/**
+	 * @return Logical AID of a sharded agent with the given runtime name, or null if there is
+	 *         none.
+	 */
+	public AID findByName(String runtimeName) {
+		// sharded agents are few, so a scan is enough
+		for (AID aid : groups.keySet()) {
+			if (aid.getName().equals(runtimeName)) {
+				return aid;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Replaces the receivers of the message which are sharded agents with their selected shards.
+	 * The message itself is left as it is.
+	 * 
+	 * @return The message, or its copy addressed to the shards if any of the receivers is a sharded
+	 *         agent.
+	 */
+	public ACLMessage resolve(ACLMessage msg) {
+		if (groups.isEmpty()) {
+			return msg;
+		}
+		List<AID> receivers = null;
+		for (int i = 0; i < msg.receivers.size(); i++) {
+			AID aid = msg.receivers.get(i);
+			ShardGroup group = aid != null ? groups.get(aid) : null;
+			if (group != null) {
+				if (receivers == null) {
+					receivers = new ArrayList<>(msg.receivers);
+				}
+				receivers.set(i, group.select(msg));
+			}
+		}
+		return receivers != null ? msg.withReceivers(receivers) : msg;
+	}
+
+	@Listener
+	public class ShardedAgentsListener {
+		@CacheEntryCreated
+		public void entryCreated(CacheEntryCreatedEvent<AID, ShardGroup> event) {
+			if (!event.isPre()) {
+				update(event.getKey());
+			}
+		}
+
+		@CacheEntryModified
+		public void entryModified(CacheEntryModifiedEvent<AID, ShardGroup> event) {
+			if (!event.isPre()) {
+				update(event.getKey());
+			}
+		}
+
+		@CacheEntryRemoved
+		public void entryRemoved(CacheEntryRemovedEvent<AID, ShardGroup> event) {
+			if (!event.isPre()) {
+				groups.remove(event.getKey());
+			}
+		}
+
+		private void update(AID aid) {
+			ShardGroup group = cache.get(aid);
+			if (group != null) {
+				groups.put(aid, group);
+			} else {
+				groups.remove(aid);
+			}
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import java.io.Serializable;
+import siebog.agents.AID;
+
+/**
+ * Subscription of an agent to a named topic, the key of the replicated topics cache.
+ */
+public final class Subscription implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private final String topic;
+	private final AID aid;
+
+	public Subscription(String topic, AID aid) {
+		this.topic = topic;
+		this.aid = aid;
+	}
+
+	public String getTopic() {
+		return topic;
+	}
+
+	public AID getAid() {
+		return aid;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * topic.hashCode() + aid.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Subscription))
+			return false;
+		Subscription other = (Subscription) obj;
+		return topic.equals(other.topic) && aid.equals(other.aid);
+	}
+
+	@Override
+	public String toString() {
+		return topic + ": " + aid;
+	}
+}
@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.LocalBean;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import org.infinispan.Cache;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
+import siebog.agents.AID;
+import siebog.utils.GlobalCache;
+
+/**
+ * Subscribers of named topics. Each subscription is a separate entry of a replicated cache, so
+ * that subscribing writes only that entry, and concurrent subscriptions from different nodes do
+ * not contend. Each node indexes the entries by topic, through a cache listener, so that
+ * publishing looks the subscribers up locally.
+ */
+@Singleton
+@LocalBean
+@Lock(LockType.READ)
+public class TopicRegistry {
+	private Cache<Subscription, Boolean> cache;
+	private final Map<String, Set<AID>> byTopic = new ConcurrentHashMap<>();
+	private SubscriptionListener listener;
+
+	@PostConstruct
+	public void postConstruct() {
+		cache = GlobalCache.get().getTopics();
+		listener = new SubscriptionListener();
+		cache.addListener(listener);
+		for (Subscription s : cache.keySet())
+			add(s);
+	}
+
+	@PreDestroy
+	public void preDestroy() {
+		cache.removeListener(listener);
+	}
+
+	/**
+	 * @return False if the agent was already subscribed to the topic.
+	 */
+	public boolean subscribe(String topic, AID aid) {
+		if (topic == null || topic.isEmpty())
+			throw new IllegalArgumentException("Topic name cannot be empty.");
+		if (aid == null)
+			throw new IllegalArgumentException("AID cannot be null.");
+		return cache.putIfAbsent(new Subscription(topic, aid), Boolean.TRUE) == null;
+	}
+
+	/**
+	 * @return False if the agent was not subscribed to the topic.
+	 */
+	public boolean unsubscribe(String topic, AID aid) {
+		return cache.remove(new Subscription(topic, aid)) != null;
+	}
+
+	/**
+	 * Removes the agent from all topics, e.g. once it has been stopped.
+	 */
+	public void unsubscribeAll(AID aid) {
+		for (Map.Entry<String, Set<AID>> e : byTopic.entrySet())
+			if (e.getValue().contains(aid))
+				unsubscribe(e.getKey(), aid);
+	}
+
+	/**
+	 * @return Read-only set of the topic's subscribers.
+	 */
+	public Set<AID> getSubscribers(String topic) {
+		Set<AID> set = byTopic.get(topic);
+		return set != null ? Collections.unmodifiableSet(set) : Collections.<AID> emptySet();
+	}
+
+	/**
+	 * @return Number of subscribers of each topic.
+	 */
+	public Map<String, Integer> getTopics() {
+		Map<String, Integer> topics = new HashMap<>();
+		for (Map.Entry<String, Set<AID>> e : byTopic.entrySet())
+			topics.put(e.getKey(), e.getValue().size());
+		return topics;
+	}
+
+	private void add(final Subscription s) {
+		// compute() is atomic per topic, so that a concurrent removal cannot drop the new set
+		byTopic.compute(s.getTopic(), new BiFunction<String, Set<AID>, Set<AID>>() {
+			@Override
+			public Set<AID> apply(String topic, Set<AID> set) {
+				if (set == null)
+					set = ConcurrentHashMap.newKeySet();
+				set.add(s.getAid());
+				return set;
+			}
+		});
+	}
+
+	private void remove(final Subscription s) {
+		byTopic.computeIfPresent(s.getTopic(), new BiFunction<String, Set<AID>, Set<AID>>() {
+			@Override
+			public Set<AID> apply(String topic, Set<AID> set) {
+				set.remove(s.getAid());
+				return set.isEmpty() ? null : set;
+			}
+		});
+	}
+
+	@Listener
+	public class SubscriptionListener {
+		@CacheEntryCreated
+		public void entryCreated(CacheEntryCreatedEvent<Subscription, Boolean> event) {
+			if (!event.isPre())
+				add(event.getKey());
+		}
+
+		@CacheEntryRemoved
+		public void entryRemoved(CacheEntryRemovedEvent<Subscription, Boolean> event) {
+			if (!event.isPre())
+				remove(event.getKey());
+		}
+	}
+}
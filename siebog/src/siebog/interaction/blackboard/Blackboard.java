@@ -31,7 +31,6 @@ import siebog.agents.AID;
 import siebog.agents.XjafAgent;
 import siebog.interaction.ACLMessage;
 import siebog.interaction.Performative;
-import siebog.utils.ObjectFactory;
 
 /**
  * @author <a href="jovanai.191@gmail.com">Jovana Ivkovic<a>
@@ -44,13 +43,17 @@ public abstract class Blackboard extends XjafAgent {
 	//and the value is the collection of AIDs of the KSs that need to be informed
 
 	private static final long serialVersionUID = 1L;
+	public static final String TOPIC = "blackboard.knowledge-sources";
 	private HashMap<String,List<AID>> notifications = new HashMap<>();
 	private List<Event> events = new ArrayList<>();
 	private HashMap<String,List<Estimate>> estimates = new HashMap<>();
 
 	public void startBlackboard(Event event){
 		events.add(event);
-		notifications.put(event.getName(), ObjectFactory.getAgentManager().getRunningAgents());
+		// knowledge sources are re-notified of this event, see newEventNotification
+		List<AID> sources = msm().getSubscribers(TOPIC);
+		sources.remove(myAid);
+		notifications.put(event.getName(), sources);
 		newEventNotification(event);
 	}
 
@@ -74,7 +77,7 @@ public abstract class Blackboard extends XjafAgent {
 
 	
 		if (msg.receivers!=null){
-			msm().post(msg);
+			msm().postBatch(msg);
 		}
 
 		//send delayed message
@@ -23,6 +23,7 @@ package siebog.interaction.blackboard;
 import java.util.List;
 
 import siebog.agents.AID;
+import siebog.agents.AgentInitArgs;
 import siebog.agents.XjafAgent;
 import siebog.interaction.ACLMessage;
 import siebog.interaction.Performative;
@@ -38,6 +39,13 @@ public abstract class KnowledgeSource extends XjafAgent {
 
 	private List<String> trigers;
 	private AID blackboardAID;
+
+	@Override
+	public void init(AID aid, AgentInitArgs args) {
+		super.init(aid, args);
+		// blackboards announce their starting events to all knowledge sources
+		subscribe(Blackboard.TOPIC);
+	}
 	
 	public abstract void defineTriggers();
 	
@@ -17,6 +17,7 @@ import siebog.agents.Agent;
 import siebog.agents.AgentManagerBean;
 import siebog.agents.XjafAgent;
 import siebog.interaction.ACLMessage;
+import siebog.interaction.MessagePriority;
 import siebog.interaction.Performative;
 import siebog.utils.ObjectFactory;
 
@@ -33,6 +34,8 @@ public class BarrierBean extends XjafAgent {
 	private Set<AID> registered;
 	// agents that are processing messages in the current superste
 	private Set<AID> processing;
+	// handle of the pending timeout message, if any
+	private long timeoutHandle;
 	@Inject
 	private AgentManagerBean localAgm;
 
@@ -104,13 +107,14 @@ public class BarrierBean extends XjafAgent {
 	private void signalSuperstep(int superstep, Set<AID> receivers) {
 		this.superstep = superstep;
 		ACLMessage msg = buildSuperstepMsg(receivers);
-		ObjectFactory.getMessageManager().post(msg);
+		ObjectFactory.getMessageManager().postBatch(msg);
 	}
 
 	private ACLMessage buildSuperstepMsg(Set<AID> receivers) {
 		ACLMessage msg = new ACLMessage(Performative.INFORM);
 		msg.sender = myAid;
 		msg.protocol = PROTOCOL;
+		msg.priority = MessagePriority.HIGH;
 		msg.receivers.addAll(processing);
 		msg.contentObj = buildSuperstep();
 		return msg;
@@ -118,9 +122,14 @@ public class BarrierBean extends XjafAgent {
 
 	private void scheduleTimeout() {
 		ACLMessage msg = new ACLMessage(Performative.REQUEST);
+		msg.priority = MessagePriority.HIGH;
 		msg.receivers.add(myAid);
 		msg.contentObj = buildSuperstep();
-		msm().post(msg, TIMEOUT);
+		// the previous timeout would be ignored anyway, so don't let it linger in the timer
+		if (timeoutHandle != 0) {
+			msm().cancel(timeoutHandle);
+		}
+		timeoutHandle = msm().schedule(msg, TIMEOUT);
 	}
 
 	private void filterUnavailableAgents() {
@@ -7,6 +7,7 @@ import siebog.agents.AID;
 import siebog.agents.AgentBuilder;
 import siebog.agents.AgentManagerBean;
 import siebog.interaction.ACLMsgBuilder;
+import siebog.interaction.MessagePriority;
 import siebog.interaction.Performative;
 
 @Singleton
@@ -44,6 +45,7 @@ public class BarrierManager {
 			.performative(Performative.INFORM)
 			.receivers(barrierAid)
 			.contentObj(aid)
+			.priority(MessagePriority.HIGH)
 			.post();
 		// @formatter:on
 
@@ -0,0 +1,408 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import siebog.agents.AID;
+import siebog.agents.AgentClass;
+import siebog.interaction.ACLMessage;
+import siebog.interaction.Performative;
+
+/**
+ * Compact binary encoding of ACL messages. Performatives are written as ordinals, integers and
+ * lengths as variable-length integers, and each distinct AID only once per message, in a table
+ * referenced by index. Content objects and user arguments of common types are written directly,
+ * types registered through {@link #registerContentType(int, Class, ContentEncoder)} using their
+ * encoders, and everything else using Java serialization.
+ * 
+ * Only instances of ACLMessage itself are supported, since the fields of its subclasses are
+ * unknown to the codec.
+ */
+public class BinaryCodec implements MessageCodec {
+	public static final String NAME = "binary";
+	private static final int VERSION = 1;
+	// presence of optional fields
+	private static final int F_SENDER = 1;
+	private static final int F_REPLY_TO = 1 << 1;
+	private static final int F_CONTENT = 1 << 2;
+	private static final int F_CONTENT_OBJ = 1 << 3;
+	private static final int F_USER_ARGS = 1 << 4;
+	private static final int F_LANGUAGE = 1 << 5;
+	private static final int F_ENCODING = 1 << 6;
+	private static final int F_ONTOLOGY = 1 << 7;
+	private static final int F_PROTOCOL = 1 << 8;
+	private static final int F_CONVERSATION_ID = 1 << 9;
+	private static final int F_REPLY_WITH = 1 << 10;
+	private static final int F_IN_REPLY_TO = 1 << 11;
+	private static final int F_REPLY_BY = 1 << 12;
+	private static final int F_PRIORITY = 1 << 13;
+	private static final int F_COALESCE_KEY = 1 << 14;
+	// value tags
+	private static final int T_NULL = 0;
+	private static final int T_STRING = 1;
+	private static final int T_INT = 2;
+	private static final int T_LONG = 3;
+	private static final int T_BOOLEAN = 4;
+	private static final int T_DOUBLE = 5;
+	private static final int T_AID = 6;
+	private static final int T_REGISTERED = 7;
+	private static final int T_SERIALIZED = 8;
+	private static final Performative[] PERFORMATIVES = Performative.values();
+	private static final Map<Class<?>, ContentType<?>> typesByClass = new ConcurrentHashMap<>();
+	private static final Map<Integer, ContentType<?>> typesById = new ConcurrentHashMap<>();
+
+	private static class ContentType<T> {
+		final int id;
+		final Class<T> type;
+		final ContentEncoder<T> encoder;
+
+		ContentType(int id, Class<T> type, ContentEncoder<T> encoder) {
+			this.id = id;
+			this.type = type;
+			this.encoder = encoder;
+		}
+	}
+
+	// AIDs referenced by a single message
+	private static class AidTable {
+		final List<AID> list = new ArrayList<>();
+		final Map<AID, Integer> indices = new HashMap<>();
+	}
+
+	/**
+	 * Registers a compact encoding for content objects (and user arguments) of the given class.
+	 * Subclasses are not matched. The same id-to-class mapping needs to be registered on all
+	 * nodes in the cluster.
+	 */
+	public static <T extends Serializable> void registerContentType(int id, Class<T> type,
+			ContentEncoder<T> encoder) {
+		if (id <= 0) {
+			throw new IllegalArgumentException("Content type id must be positive.");
+		}
+		ContentType<T> ct = new ContentType<>(id, type, encoder);
+		ContentType<?> existing = typesById.putIfAbsent(id, ct);
+		if (existing != null && existing.type != type) {
+			throw new IllegalStateException("Content type id " + id + " is already used for "
+					+ existing.type.getName());
+		}
+		typesByClass.put(type, ct);
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public boolean supports(ACLMessage msg) {
+		return msg.getClass() == ACLMessage.class;
+	}
+
+	@Override
+	public byte[] encode(ACLMessage msg) throws IOException {
+		AidTable aids = new AidTable();
+		WireWriter body = new WireWriter(256);
+		int flags = getFlags(msg);
+		body.writeVarInt(flags);
+		body.writeVarInt(msg.performative != null ? msg.performative.ordinal() + 1 : 0);
+		if ((flags & F_SENDER) != 0)
+			writeAid(body, msg.sender, aids);
+		int n = msg.receivers != null ? msg.receivers.size() : 0;
+		body.writeVarInt(n);
+		for (int i = 0; i < n; i++)
+			writeAid(body, msg.receivers.get(i), aids);
+		if ((flags & F_REPLY_TO) != 0)
+			writeAid(body, msg.replyTo, aids);
+		if ((flags & F_CONTENT) != 0)
+			body.writeString(msg.content);
+		if ((flags & F_CONTENT_OBJ) != 0)
+			writeValue(body, msg.contentObj, aids);
+		if ((flags & F_USER_ARGS) != 0) {
+			body.writeVarInt(msg.userArgs.size());
+			for (Entry<String, Serializable> e : msg.userArgs.entrySet()) {
+				body.writeString(e.getKey());
+				writeValue(body, e.getValue(), aids);
+			}
+		}
+		if ((flags & F_LANGUAGE) != 0)
+			body.writeString(msg.language);
+		if ((flags & F_ENCODING) != 0)
+			body.writeString(msg.encoding);
+		if ((flags & F_ONTOLOGY) != 0)
+			body.writeString(msg.ontology);
+		if ((flags & F_PROTOCOL) != 0)
+			body.writeString(msg.protocol);
+		if ((flags & F_CONVERSATION_ID) != 0)
+			body.writeString(msg.conversationId);
+		if ((flags & F_REPLY_WITH) != 0)
+			body.writeString(msg.replyWith);
+		if ((flags & F_IN_REPLY_TO) != 0)
+			body.writeString(msg.inReplyTo);
+		if ((flags & F_REPLY_BY) != 0)
+			body.writeZigZag(msg.replyBy);
+		if ((flags & F_PRIORITY) != 0)
+			body.writeVarInt(msg.priority);
+		if ((flags & F_COALESCE_KEY) != 0)
+			body.writeString(msg.coalesceKey);
+
+		WireWriter out = new WireWriter(64 + aids.list.size() * 48);
+		out.writeByte(VERSION);
+		out.writeVarInt(aids.list.size());
+		for (AID aid : aids.list)
+			writeAidEntry(out, aid);
+		out.write(body);
+		return out.toByteArray();
+	}
+
+	@Override
+	public ACLMessage decode(byte[] data) throws IOException {
+		WireReader in = new WireReader(data);
+		int version = in.readByte();
+		if (version != VERSION) {
+			throw new IOException("Unsupported binary message version: " + version);
+		}
+		int numAids = in.readVarInt();
+		List<AID> aids = new ArrayList<>(numAids);
+		for (int i = 0; i < numAids; i++)
+			aids.add(readAidEntry(in));
+
+		int flags = in.readVarInt();
+		int p = in.readVarInt();
+		if (p > PERFORMATIVES.length) {
+			throw new IOException("Unknown performative: " + (p - 1));
+		}
+		ACLMessage msg = new ACLMessage(p > 0 ? PERFORMATIVES[p - 1] : null);
+		if ((flags & F_SENDER) != 0)
+			msg.sender = readAid(in, aids);
+		int n = in.readVarInt();
+		for (int i = 0; i < n; i++)
+			msg.receivers.add(readAid(in, aids));
+		if ((flags & F_REPLY_TO) != 0)
+			msg.replyTo = readAid(in, aids);
+		if ((flags & F_CONTENT) != 0)
+			msg.content = in.readString();
+		if ((flags & F_CONTENT_OBJ) != 0)
+			msg.contentObj = readValue(in, aids);
+		if ((flags & F_USER_ARGS) != 0) {
+			n = in.readVarInt();
+			for (int i = 0; i < n; i++) {
+				String key = in.readString();
+				msg.userArgs.put(key, readValue(in, aids));
+			}
+		}
+		if ((flags & F_LANGUAGE) != 0)
+			msg.language = in.readString();
+		if ((flags & F_ENCODING) != 0)
+			msg.encoding = in.readString();
+		if ((flags & F_ONTOLOGY) != 0)
+			msg.ontology = in.readString();
+		if ((flags & F_PROTOCOL) != 0)
+			msg.protocol = in.readString();
+		if ((flags & F_CONVERSATION_ID) != 0)
+			msg.conversationId = in.readString();
+		if ((flags & F_REPLY_WITH) != 0)
+			msg.replyWith = in.readString();
+		if ((flags & F_IN_REPLY_TO) != 0)
+			msg.inReplyTo = in.readString();
+		if ((flags & F_REPLY_BY) != 0)
+			msg.replyBy = in.readZigZag();
+		if ((flags & F_PRIORITY) != 0)
+			msg.priority = in.readVarInt();
+		if ((flags & F_COALESCE_KEY) != 0)
+			msg.coalesceKey = in.readString();
+		return msg;
+	}
+
+	private int getFlags(ACLMessage msg) {
+		int flags = 0;
+		if (msg.sender != null)
+			flags |= F_SENDER;
+		if (msg.replyTo != null)
+			flags |= F_REPLY_TO;
+		if (msg.content != null)
+			flags |= F_CONTENT;
+		if (msg.contentObj != null)
+			flags |= F_CONTENT_OBJ;
+		if (msg.userArgs != null && !msg.userArgs.isEmpty())
+			flags |= F_USER_ARGS;
+		if (msg.language != null)
+			flags |= F_LANGUAGE;
+		if (msg.encoding != null)
+			flags |= F_ENCODING;
+		if (msg.ontology != null)
+			flags |= F_ONTOLOGY;
+		if (msg.protocol != null)
+			flags |= F_PROTOCOL;
+		if (msg.conversationId != null)
+			flags |= F_CONVERSATION_ID;
+		if (msg.replyWith != null)
+			flags |= F_REPLY_WITH;
+		if (msg.inReplyTo != null)
+			flags |= F_IN_REPLY_TO;
+		if (msg.replyBy != 0)
+			flags |= F_REPLY_BY;
+		if (msg.priority >= 0)
+			flags |= F_PRIORITY;
+		if (msg.coalesceKey != null)
+			flags |= F_COALESCE_KEY;
+		return flags;
+	}
+
+	// AIDs are written as their index in the table plus 1, with 0 denoting null
+	private void writeAid(WireWriter out, AID aid, AidTable aids) {
+		if (aid == null) {
+			out.writeVarInt(0);
+			return;
+		}
+		Integer index = aids.indices.get(aid);
+		if (index == null) {
+			index = aids.list.size();
+			aids.list.add(aid);
+			aids.indices.put(aid, index);
+		}
+		out.writeVarInt(index + 1);
+	}
+
+	private AID readAid(WireReader in, List<AID> aids) throws IOException {
+		int index = in.readVarInt();
+		if (index == 0) {
+			return null;
+		}
+		if (index > aids.size()) {
+			throw new IOException("Invalid AID reference: " + index);
+		}
+		return aids.get(index - 1);
+	}
+
+	private void writeAidEntry(WireWriter out, AID aid) {
+		out.writeString(aid.getName());
+		out.writeString(aid.getHost());
+		AgentClass agClass = aid.getAgClass();
+		if (agClass == null) {
+			out.writeByte(0);
+		} else {
+			out.writeByte(1);
+			out.writeString(agClass.getModule());
+			out.writeString(agClass.getEjbName());
+			out.writeString(agClass.getPath());
+		}
+	}
+
+	private AID readAidEntry(WireReader in) throws IOException {
+		String name = in.readString();
+		String host = in.readString();
+		if (in.readByte() == 0) {
+			if (name.isEmpty() && host.isEmpty()) {
+				return new AID();
+			}
+			return new AID(name, host, null);
+		}
+		String module = in.readString();
+		String ejbName = in.readString();
+		String path = in.readString();
+		return new AID(name, host, new AgentClass(module, ejbName, path));
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private void writeValue(WireWriter out, Object value, AidTable aids) throws IOException {
+		if (value == null) {
+			out.writeByte(T_NULL);
+		} else if (value instanceof String) {
+			out.writeByte(T_STRING);
+			out.writeString((String) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(T_INT);
+			out.writeZigZag((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(T_LONG);
+			out.writeZigZag((Long) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte(T_BOOLEAN);
+			out.writeByte((Boolean) value ? 1 : 0);
+		} else if (value instanceof Double) {
+			out.writeByte(T_DOUBLE);
+			out.writeFixed64(Double.doubleToRawLongBits((Double) value));
+		} else if (value instanceof AID) {
+			out.writeByte(T_AID);
+			writeAid(out, (AID) value, aids);
+		} else {
+			ContentType ct = typesByClass.get(value.getClass());
+			if (ct != null) {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+				try (DataOutputStream data = new DataOutputStream(bytes)) {
+					ct.encoder.write(value, data);
+				}
+				out.writeByte(T_REGISTERED);
+				out.writeVarInt(ct.id);
+				out.writeBytes(bytes.toByteArray());
+			} else {
+				out.writeByte(T_SERIALIZED);
+				out.writeBytes(Serialization.serialize(value));
+			}
+		}
+	}
+
+	private Serializable readValue(WireReader in, List<AID> aids) throws IOException {
+		int tag = in.readByte();
+		switch (tag) {
+		case T_NULL:
+			return null;
+		case T_STRING:
+			return in.readString();
+		case T_INT:
+			return (int) in.readZigZag();
+		case T_LONG:
+			return in.readZigZag();
+		case T_BOOLEAN:
+			return in.readByte() != 0;
+		case T_DOUBLE:
+			return Double.longBitsToDouble(in.readFixed64());
+		case T_AID:
+			return readAid(in, aids);
+		case T_REGISTERED: {
+			int id = in.readVarInt();
+			ContentType<?> ct = typesById.get(id);
+			if (ct == null) {
+				throw new IOException("Unknown content type: " + id);
+			}
+			byte[] bytes = in.readBytes();
+			try (DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes))) {
+				return (Serializable) ct.encoder.read(data);
+			}
+		}
+		case T_SERIALIZED:
+			return (Serializable) Serialization.deserialize(in.readBytes());
+		default:
+			throw new IOException("Unknown value tag: " + tag);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction.codec;
+
+import java.io.IOException;
+import siebog.interaction.ACLMessage;
+
+/**
+ * Encodes messages using standard Java serialization, the same format used by JMS object
+ * messages. Supports all messages, including subclasses of ACLMessage.
+ */
+public class JavaSerializationCodec implements MessageCodec {
+	public static final String NAME = "java";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public boolean supports(ACLMessage msg) {
+		return true;
+	}
+
+	@Override
+	public byte[] encode(ACLMessage msg) throws IOException {
+		return Serialization.serialize(msg);
+	}
+
+	@Override
+	public ACLMessage decode(byte[] data) throws IOException {
+		try {
+			return (ACLMessage) Serialization.deserialize(data);
+		} catch (ClassCastException ex) {
+			throw new IOException("Not an ACL message.", ex);
+		}
+	}
+}
@@ -0,0 +1,330 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction.codec;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Map.Entry;
+import org.hornetq.utils.json.JSONException;
+import siebog.agents.AID;
+import siebog.agents.AIDPool;
+import siebog.interaction.ACLMessage;
+import siebog.interaction.MessagePriority;
+import siebog.interaction.Performative;
+
+/**
+ * The JSON format of ACL messages used by the REST interface and web clients, written and read
+ * without building intermediate JSON objects. The format is the one produced by the original
+ * org.json implementation: AIDs are embedded as strings holding their own JSON form, and user
+ * arguments are stored as top-level properties prefixed with {@link ACLMessage#USERARG_PREFIX}.
+ * <p>
+ * The Java content object is not part of the format, so messages carrying one are not supported
+ * as a wire codec.
+ */
+public class JsonCodec implements MessageCodec {
+	public static final String NAME = "json";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public boolean supports(ACLMessage msg) {
+		return msg.getClass() == ACLMessage.class && msg.contentObj == null;
+	}
+
+	@Override
+	public byte[] encode(ACLMessage msg) throws IOException {
+		return toJson(msg).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public ACLMessage decode(byte[] data) throws IOException {
+		try {
+			return new ACLMessage(new String(data, StandardCharsets.UTF_8));
+		} catch (JSONException ex) {
+			throw new IOException(ex);
+		}
+	}
+
+	public static String toJson(ACLMessage msg) {
+		StringBuilder sb = new StringBuilder(256);
+		try {
+			write(msg, sb);
+		} catch (IOException ex) {
+			// StringBuilder does not throw
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the message directly to the given output, e.g. an HTTP response or WebSocket writer.
+	 */
+	public static void write(ACLMessage msg, Appendable out) throws IOException {
+		out.append('{');
+		boolean first = true;
+		if (msg.performative != null) {
+			first = name(out, first, "performative");
+			quote(out, msg.performative.toString());
+		}
+		if (msg.sender != null) {
+			first = name(out, first, "sender");
+			quote(out, msg.sender.toString());
+		}
+		first = name(out, first, "receivers");
+		out.append('[');
+		if (msg.receivers != null) {
+			for (int i = 0, n = msg.receivers.size(); i < n; i++) {
+				if (i > 0)
+					out.append(',');
+				AID aid = msg.receivers.get(i);
+				if (aid != null)
+					quote(out, aid.toString());
+				else
+					out.append("null");
+			}
+		}
+		out.append(']');
+		if (msg.replyTo != null) {
+			first = name(out, first, "replyTo");
+			quote(out, msg.replyTo.toString());
+		}
+		first = string(out, first, "content", msg.content);
+		first = string(out, first, "language", msg.language);
+		first = string(out, first, "encoding", msg.encoding);
+		first = string(out, first, "ontology", msg.ontology);
+		first = string(out, first, "protocol", msg.protocol);
+		first = string(out, first, "conversationId", msg.conversationId);
+		first = string(out, first, "replyWith", msg.replyWith);
+		first = string(out, first, "inReplyTo", msg.inReplyTo);
+		first = name(out, first, "replyBy");
+		out.append(Long.toString(msg.replyBy));
+		if (msg.priority != MessagePriority.UNSET) {
+			first = name(out, first, "priority");
+			out.append(Integer.toString(msg.priority));
+		}
+		first = string(out, first, "coalesceKey", msg.coalesceKey);
+		if (msg.userArgs != null) {
+			for (Entry<String, Serializable> e : msg.userArgs.entrySet()) {
+				first = name(out, first, ACLMessage.USERARG_PREFIX + e.getKey());
+				value(out, e.getValue());
+			}
+		}
+		out.append('}');
+	}
+
+	/**
+	 * Fills the given message with the contents of the JSON string. Missing string properties are
+	 * set to empty strings, as before.
+	 */
+	public static void read(String json, ACLMessage msg) throws JSONException {
+		msg.content = msg.language = msg.encoding = msg.ontology = msg.protocol = "";
+		msg.conversationId = msg.replyWith = msg.inReplyTo = "";
+		boolean hasPerformative = false;
+		JsonReader in = new JsonReader(json);
+		in.expect('{');
+		if (!in.next('}')) {
+			do {
+				String name = in.readString();
+				in.expect(':');
+				switch (name) {
+				case "performative":
+					msg.performative = Performative.valueOf(text(in.readValue()).toUpperCase());
+					hasPerformative = true;
+					break;
+				case "sender":
+					msg.sender = aid(in.readValue());
+					break;
+				case "receivers":
+					if (in.peek() == '[') {
+						in.expect('[');
+						if (!in.next(']')) {
+							do {
+								AID aid = aid(in.readValue());
+								if (aid != null)
+									msg.receivers.add(aid);
+							} while (in.next(','));
+							in.expect(']');
+						}
+					} else
+						in.readValue();
+					break;
+				case "replyTo":
+					msg.replyTo = aid(in.readValue());
+					break;
+				case "content":
+					msg.content = text(in.readValue());
+					break;
+				case "language":
+					msg.language = text(in.readValue());
+					break;
+				case "encoding":
+					msg.encoding = text(in.readValue());
+					break;
+				case "ontology":
+					msg.ontology = text(in.readValue());
+					break;
+				case "protocol":
+					msg.protocol = text(in.readValue());
+					break;
+				case "conversationId":
+					msg.conversationId = text(in.readValue());
+					break;
+				case "replyWith":
+					msg.replyWith = text(in.readValue());
+					break;
+				case "inReplyTo":
+					msg.inReplyTo = text(in.readValue());
+					break;
+				case "replyBy":
+					msg.replyBy = number(in.readValue(), 0);
+					break;
+				case "priority":
+					msg.priority = (int) number(in.readValue(), MessagePriority.UNSET);
+					break;
+				case "coalesceKey":
+					String key = text(in.readValue());
+					msg.coalesceKey = key.isEmpty() ? null : key;
+					break;
+				default:
+					Object value = in.readValue();
+					if (name.startsWith(ACLMessage.USERARG_PREFIX))
+						msg.userArgs.put(name.substring(ACLMessage.USERARG_PREFIX.length()),
+								(Serializable) value);
+				}
+			} while (in.next(','));
+			in.expect('}');
+		}
+		in.expectEnd();
+		if (!hasPerformative)
+			throw new JSONException("JSONObject[\"performative\"] not found.");
+	}
+
+	private static String text(Object value) {
+		return value != null ? value.toString() : "";
+	}
+
+	private static AID aid(Object value) {
+		String str = text(value);
+		return str.isEmpty() ? null : AIDPool.fromJson(str);
+	}
+
+	private static long number(Object value, long defaultValue) {
+		if (value instanceof Number)
+			return ((Number) value).longValue();
+		if (value instanceof String) {
+			try {
+				return Long.parseLong((String) value);
+			} catch (NumberFormatException ex) {
+			}
+		}
+		return defaultValue;
+	}
+
+	private static boolean name(Appendable out, boolean first, String name) throws IOException {
+		if (!first)
+			out.append(',');
+		quote(out, name);
+		out.append(':');
+		return false;
+	}
+
+	private static boolean string(Appendable out, boolean first, String name, String value)
+			throws IOException {
+		if (value == null)
+			return first;
+		name(out, first, name);
+		quote(out, value);
+		return false;
+	}
+
+	private static void value(Appendable out, Serializable value) throws IOException {
+		if (value == null)
+			out.append("null");
+		else if (value instanceof Boolean || value instanceof Integer || value instanceof Long
+				|| value instanceof Short || value instanceof Byte)
+			out.append(value.toString());
+		else if (value instanceof Double || value instanceof Float) {
+			double d = ((Number) value).doubleValue();
+			if (Double.isNaN(d) || Double.isInfinite(d))
+				out.append("null");
+			else
+				out.append(trimZeros(value.toString()));
+		} else
+			quote(out, value.toString());
+	}
+
+	// same as org.json: 1.50 -> 1.5, 2.0 -> 2
+	private static String trimZeros(String num) {
+		if (num.indexOf('.') < 0 || num.indexOf('e') >= 0 || num.indexOf('E') >= 0)
+			return num;
+		int end = num.length();
+		while (num.charAt(end - 1) == '0')
+			--end;
+		if (num.charAt(end - 1) == '.')
+			--end;
+		return num.substring(0, end);
+	}
+
+	private static void quote(Appendable out, String str) throws IOException {
+		out.append('"');
+		int start = 0;
+		final int n = str.length();
+		for (int i = 0; i < n; i++) {
+			char c = str.charAt(i);
+			String esc;
+			switch (c) {
+			case '"':
+				esc = "\\\"";
+				break;
+			case '\\':
+				esc = "\\\\";
+				break;
+			case '\n':
+				esc = "\\n";
+				break;
+			case '\r':
+				esc = "\\r";
+				break;
+			case '\t':
+				esc = "\\t";
+				break;
+			case '\b':
+				esc = "\\b";
+				break;
+			case '\f':
+				esc = "\\f";
+				break;
+			default:
+				if (c >= ' ' && c != '\u2028' && c != '\u2029')
+					continue;
+				esc = String.format("\\u%04x", (int) c);
+			}
+			out.append(str, start, i);
+			out.append(esc);
+			start = i + 1;
+		}
+		out.append(str, start, n);
+		out.append('"');
+	}
+}
@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction.codec;
+
+import org.hornetq.utils.json.JSONException;
+
+/**
+ * Minimal pull parser working directly on the input string. Nested objects and arrays can be
+ * taken as raw text, so that values such as embedded AIDs need not be parsed twice.
+ */
+class JsonReader {
+	private final String s;
+	private int pos;
+
+	public JsonReader(String s) {
+		this.s = s;
+	}
+
+	/**
+	 * Skips whitespace and returns the next character, without consuming it.
+	 */
+	public char peek() throws JSONException {
+		final int n = s.length();
+		while (pos < n) {
+			char c = s.charAt(pos);
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r')
+				return c;
+			++pos;
+		}
+		throw error("Unexpected end of input");
+	}
+
+	/**
+	 * Consumes the next character if it is the given one.
+	 */
+	public boolean next(char c) throws JSONException {
+		if (peek() == c) {
+			++pos;
+			return true;
+		}
+		return false;
+	}
+
+	public void expect(char c) throws JSONException {
+		if (!next(c))
+			throw error("Expected '" + c + "'");
+	}
+
+	public void expectEnd() throws JSONException {
+		final int n = s.length();
+		while (pos < n && Character.isWhitespace(s.charAt(pos)))
+			++pos;
+		if (pos < n)
+			throw error("Unexpected trailing characters");
+	}
+
+	public String readString() throws JSONException {
+		expect('"');
+		final int start = pos;
+		final int n = s.length();
+		// fast path, no escapes
+		while (pos < n) {
+			char c = s.charAt(pos);
+			if (c == '"')
+				return s.substring(start, pos++);
+			if (c == '\\')
+				break;
+			++pos;
+		}
+		StringBuilder sb = new StringBuilder(pos - start + 16);
+		sb.append(s, start, pos);
+		while (pos < n) {
+			char c = s.charAt(pos++);
+			if (c == '"')
+				return sb.toString();
+			if (c != '\\') {
+				sb.append(c);
+				continue;
+			}
+			if (pos >= n)
+				break;
+			c = s.charAt(pos++);
+			switch (c) {
+			case 'b':
+				sb.append('\b');
+				break;
+			case 't':
+				sb.append('\t');
+				break;
+			case 'n':
+				sb.append('\n');
+				break;
+			case 'f':
+				sb.append('\f');
+				break;
+			case 'r':
+				sb.append('\r');
+				break;
+			case 'u':
+				if (pos + 4 > n)
+					throw error("Invalid unicode escape");
+				try {
+					sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+				} catch (NumberFormatException ex) {
+					throw error("Invalid unicode escape");
+				}
+				pos += 4;
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+		throw error("Unterminated string");
+	}
+
+	/**
+	 * Reads the next value. Strings, numbers and booleans are returned as Java objects, JSON null
+	 * as null, and objects and arrays as their raw text.
+	 */
+	public Object readValue() throws JSONException {
+		char c = peek();
+		switch (c) {
+		case '"':
+			return readString();
+		case '{':
+		case '[':
+			final int start = pos;
+			skipStructure();
+			return s.substring(start, pos);
+		case 't':
+			return readLiteral("true", Boolean.TRUE);
+		case 'f':
+			return readLiteral("false", Boolean.FALSE);
+		case 'n':
+			return readLiteral("null", null);
+		default:
+			return readNumber();
+		}
+	}
+
+	private Object readLiteral(String literal, Object value) throws JSONException {
+		if (!s.startsWith(literal, pos))
+			throw error("Unexpected value");
+		pos += literal.length();
+		return value;
+	}
+
+	private Number readNumber() throws JSONException {
+		final int start = pos;
+		final int n = s.length();
+		boolean decimal = false;
+		while (pos < n) {
+			char c = s.charAt(pos);
+			if (c == '.' || c == 'e' || c == 'E')
+				decimal = true;
+			else if ((c < '0' || c > '9') && c != '-' && c != '+')
+				break;
+			++pos;
+		}
+		if (pos == start)
+			throw error("Unexpected character");
+		String num = s.substring(start, pos);
+		try {
+			if (decimal)
+				return Double.valueOf(num);
+			long l = Long.parseLong(num);
+			if (l == (int) l)
+				return (int) l;
+			return l;
+		} catch (NumberFormatException ex) {
+			throw error("Invalid number " + num);
+		}
+	}
+
+	private void skipStructure() throws JSONException {
+		int depth = 0;
+		final int n = s.length();
+		while (pos < n) {
+			char c = s.charAt(pos);
+			if (c == '"') {
+				readString();
+				continue;
+			}
+			++pos;
+			if (c == '{' || c == '[')
+				++depth;
+			else if ((c == '}' || c == ']') && --depth == 0)
+				return;
+		}
+		throw error("Unterminated structure");
+	}
+
+	private JSONException error(String msg) {
+		return new JSONException(msg + " at position " + pos + ".");
+	}
+}
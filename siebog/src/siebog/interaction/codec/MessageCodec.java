@@ -0,0 +1,42 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction.codec;
+
+import java.io.IOException;
+import siebog.interaction.ACLMessage;
+
+/**
+ * Converts ACL messages to and from their wire representation. Codecs are registered with
+ * {@link MessageCodecs} under a unique name, which is sent along with each encoded message.
+ */
+public interface MessageCodec {
+	String getName();
+
+	/**
+	 * @return False if the message cannot be encoded by this codec, in which case the caller
+	 *         should fall back to standard Java serialization.
+	 */
+	boolean supports(ACLMessage msg);
+
+	byte[] encode(ACLMessage msg) throws IOException;
+
+	ACLMessage decode(byte[] data) throws IOException;
+}
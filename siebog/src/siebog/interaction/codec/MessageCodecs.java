@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction.codec;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of available message codecs. The codec used for outgoing messages is selected with the
+ * "siebog.codec" system property, and defaults to the compact binary codec.
+ */
+public abstract class MessageCodecs {
+	public static final String PROPERTY = "siebog.codec";
+	private static final Map<String, MessageCodec> codecs = new ConcurrentHashMap<>();
+
+	static {
+		register(new JavaSerializationCodec());
+		register(new BinaryCodec());
+		register(new JsonCodec());
+	}
+
+	public static void register(MessageCodec codec) {
+		codecs.put(codec.getName(), codec);
+	}
+
+	public static MessageCodec get(String name) {
+		MessageCodec codec = name != null ? codecs.get(name) : null;
+		if (codec == null) {
+			throw new IllegalArgumentException("Unknown message codec: " + name);
+		}
+		return codec;
+	}
+
+	public static MessageCodec getDefault() {
+		return get(System.getProperty(PROPERTY, BinaryCodec.NAME));
+	}
+}
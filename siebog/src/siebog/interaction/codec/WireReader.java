@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Counterpart of {@link WireWriter}.
+ */
+final class WireReader {
+	private final byte[] buf;
+	private int pos;
+
+	public WireReader(byte[] buf) {
+		this.buf = buf;
+	}
+
+	public int readByte() throws IOException {
+		if (pos >= buf.length) {
+			throw new EOFException();
+		}
+		return buf[pos++] & 0xFF;
+	}
+
+	public int readVarInt() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable-length integer.");
+	}
+
+	public long readVarLong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable-length integer.");
+	}
+
+	public long readFixed64() throws IOException {
+		checkAvailable(8);
+		long value = 0;
+		for (int i = 0; i < 8; i++) {
+			value |= (long) (buf[pos++] & 0xFF) << (i * 8);
+		}
+		return value;
+	}
+
+	public long readZigZag() throws IOException {
+		long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public String readString() throws IOException {
+		int n = readVarInt();
+		if (n == 0) {
+			return null;
+		}
+		n--;
+		checkAvailable(n);
+		String str = new String(buf, pos, n, StandardCharsets.UTF_8);
+		pos += n;
+		return str;
+	}
+
+	public byte[] readBytes() throws IOException {
+		int n = readVarInt();
+		checkAvailable(n);
+		byte[] bytes = Arrays.copyOfRange(buf, pos, pos + n);
+		pos += n;
+		return bytes;
+	}
+
+	public boolean hasMore() {
+		return pos < buf.length;
+	}
+
+	private void checkAvailable(int n) throws IOException {
+		if (n < 0 || pos + n > buf.length) {
+			throw new EOFException();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable output buffer with variable-length integer encoding.
+ */
+final class WireWriter {
+	private byte[] buf;
+	private int pos;
+
+	public WireWriter(int capacity) {
+		buf = new byte[capacity];
+	}
+
+	public void writeByte(int b) {
+		ensure(1);
+		buf[pos++] = (byte) b;
+	}
+
+	public void writeVarInt(int value) {
+		ensure(5);
+		while ((value & ~0x7F) != 0) {
+			buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buf[pos++] = (byte) value;
+	}
+
+	public void writeVarLong(long value) {
+		ensure(10);
+		while ((value & ~0x7FL) != 0) {
+			buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buf[pos++] = (byte) value;
+	}
+
+	public void writeFixed64(long value) {
+		ensure(8);
+		for (int i = 0; i < 8; i++) {
+			buf[pos++] = (byte) (value >>> (i * 8));
+		}
+	}
+
+	public void writeZigZag(long value) {
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * Null strings are written as 0, all others as the length of the UTF-8 representation plus 1,
+	 * followed by the actual bytes.
+	 */
+	public void writeString(String str) {
+		if (str == null) {
+			writeVarInt(0);
+		} else {
+			byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(bytes.length + 1);
+			writeRaw(bytes, 0, bytes.length);
+		}
+	}
+
+	public void writeBytes(byte[] bytes) {
+		writeVarInt(bytes.length);
+		writeRaw(bytes, 0, bytes.length);
+	}
+
+	public void write(WireWriter other) {
+		writeRaw(other.buf, 0, other.pos);
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buf, pos);
+	}
+
+	private void writeRaw(byte[] bytes, int offset, int length) {
+		ensure(length);
+		System.arraycopy(bytes, offset, buf, pos, length);
+		pos += length;
+	}
+
+	private void ensure(int n) {
+		if (pos + n > buf.length) {
+			buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+		}
+	}
+}
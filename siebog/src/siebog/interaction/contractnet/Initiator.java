@@ -7,6 +7,7 @@ import org.slf4j.LoggerFactory;
 import siebog.agents.AID;
 import siebog.agents.XjafAgent;
 import siebog.interaction.ACLMessage;
+import siebog.interaction.MessagePriority;
 import siebog.interaction.Performative;
 import siebog.utils.ObjectFactory;
 
@@ -17,6 +18,7 @@ import siebog.utils.ObjectFactory;
 
 public abstract class Initiator extends XjafAgent {
 	private static final long serialVersionUID = 1L;
+	public static final String TOPIC = "contractnet.participants";
 	private static final Logger LOG = LoggerFactory.getLogger(Initiator.class);
 	private int pendingProposals;
 	private Proposal bestProposal;
@@ -32,21 +34,19 @@ public abstract class Initiator extends XjafAgent {
 	public void cfp(CallForProposal proposal) {
 		status = 0;
 		proposal.setInitiator(myAid);
-		List<AID> participants = ObjectFactory.getAgentManager().getRunningAgents();
 		ACLMessage msg = new ACLMessage(Performative.CALL_FOR_PROPOSAL);
-		msg.receivers.addAll(participants);
 		msg.contentObj = proposal;
 		msg.sender = myAid;
 
 		msg.replyBy = proposal.getReplyBy();
-		msm().post(msg);
-		pendingProposals = participants.size() - 1;
+		pendingProposals = msm().publish(TOPIC, msg);
 		LOG.info("A call for proposals is out!");
 		// fault checking
 		ACLMessage delayedMsg = new ACLMessage();
 		delayedMsg.sender = myAid;
 		delayedMsg.receivers.add(myAid);
 		delayedMsg.content = "replyBy";
+		delayedMsg.priority = MessagePriority.HIGH;
 		msm().post(delayedMsg, proposal.getReplyBy() - System.currentTimeMillis());
 	}
 
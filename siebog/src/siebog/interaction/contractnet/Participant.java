@@ -7,6 +7,8 @@ package siebog.interaction.contractnet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import siebog.agents.AID;
+import siebog.agents.AgentInitArgs;
 import siebog.agents.XjafAgent;
 import siebog.interaction.ACLMessage;
 import siebog.interaction.Performative;
@@ -16,6 +18,13 @@ public abstract class Participant extends XjafAgent {
 	private static final Logger LOG = LoggerFactory.getLogger(Participant.class);
 	private CallForProposal cfp;
 
+	@Override
+	public void init(AID aid, AgentInitArgs args) {
+		super.init(aid, args);
+		// calls for proposals are published to all participants
+		subscribe(Initiator.TOPIC);
+	}
+
 	public void propose(Proposal proposal) {
 		ACLMessage reply = new ACLMessage(Performative.PROPOSE);
 		reply.receivers.add(proposal.getInitiator());
@@ -51,6 +51,8 @@ import siebog.utils.ObjectFactory;
  */
 public class JasonEEAgArch extends AgArch implements Serializable {
 	private static final long serialVersionUID = 1L;
+	// all JasonEE agents subscribe to this topic, see broadcast()
+	public static final String BROADCAST_TOPIC = "jasonee.agents";
 	private transient JasonEEAgent agent;
 	private boolean running = true;
 	// TODO ActionExec -> intention -> intendedMeans -> unif is not serializable
@@ -155,12 +157,7 @@ public class JasonEEAgArch extends AgArch implements Serializable {
 	@Override
 	public void broadcast(Message m) throws Exception {
 		ACLMessage acl = JasonMessage.toAclMessage(m);
-		List<AID> list = ObjectFactory.getAgentManager().getRunningAgents();
-		final AID myAid = agent.getAid();
-		for (AID aid : list)
-			if (!myAid.equals(aid))
-				acl.receivers.add(aid);
-		ObjectFactory.getMessageManager().post(acl);
+		ObjectFactory.getMessageManager().publish(BROADCAST_TOPIC, acl);
 	}
 
 	@Override
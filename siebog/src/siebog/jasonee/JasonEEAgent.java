@@ -82,6 +82,7 @@ public class JasonEEAgent extends XjafAgent {
 		envName = args.get("envName", null);
 		arch = new JasonEEAgArch();
 		initArch();
+		subscribe(JasonEEAgArch.BROADCAST_TOPIC);
 		syncMode = arch.getTS().getSettings().isSync();
 		wakeUp();
 	}
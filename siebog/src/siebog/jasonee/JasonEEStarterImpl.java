@@ -23,6 +23,8 @@ package siebog.jasonee;
 import jason.mas2j.AgentParameters;
 import jason.mas2j.ClassParameters;
 import jason.mas2j.MAS2JProject;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import javax.ejb.Remote;
 import javax.ejb.Stateless;
@@ -133,15 +135,18 @@ public class JasonEEStarterImpl implements JasonEEStarter {
 		for (AgentParameters agp : agents) {
 			if (!agp.name.equals(RemoteObjectFactory.NAME)) {
 				if (agp.qty <= 1)
-					createAgent(agp.name, agp.name);
-				else
+					createAgents(agp.name, Collections.singletonList(agp.name));
+				else {
+					List<String> names = new ArrayList<>(agp.qty);
 					for (int i = 1; i <= agp.qty; i++)
-						createAgent(agp.name, agp.name + i);
+						names.add(agp.name + i);
+					createAgents(agp.name, names);
+				}
 			}
 		}
 	}
 
-	private void createAgent(String agentName, String runtimeName) {
+	private void createAgents(String agentName, List<String> runtimeNames) {
 		AgentClass agClass = new AgentClass(Agent.SIEBOG_MODULE, JasonEEAgent.class.getSimpleName());
 		AgentInitArgs args = new AgentInitArgs();
 		args.put("mas2jSource", project.getMas2jSource());
@@ -151,6 +156,6 @@ public class JasonEEStarterImpl implements JasonEEStarter {
 		args.put("remObjFactEjb", remObjFactEjb);
 		args.put("envName", envName);
 		args.put("execCtrlName", ctrlName);
-		ObjectFactory.getAgentManager().startServerAgent(agClass, runtimeName, args);
+		ObjectFactory.getAgentManager().startServerAgents(agClass, runtimeNames, args);
 	}
 }
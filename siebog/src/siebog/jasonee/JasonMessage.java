@@ -41,7 +41,7 @@ import jason.asSyntax.ASSyntax;
 import jason.asSyntax.StringTermImpl;
 import jason.asSyntax.Term;
 import java.io.Serializable;
-import siebog.agents.AID;
+import siebog.agents.AIDPool;
 import siebog.interaction.ACLMessage;
 import siebog.interaction.Performative;
 
@@ -53,10 +53,10 @@ import siebog.interaction.Performative;
 public class JasonMessage {
 	public static ACLMessage toAclMessage(Message jmsg) {
 		ACLMessage acl = createForIlForce(jmsg.getIlForce());
-		acl.sender = new AID(jmsg.getSender());
+		acl.sender = AIDPool.fromJson(jmsg.getSender());
 		final String jmsgReceiver = jmsg.getReceiver();
 		if (jmsgReceiver != null)
-			acl.receivers.add(new AID(jmsgReceiver));
+			acl.receivers.add(AIDPool.fromJson(jmsgReceiver));
 		if (jmsg.getPropCont() instanceof Term || jmsg.getPropCont() instanceof String) {
 			acl.content = jmsg.getPropCont().toString();
 		} else {
@@ -41,6 +41,7 @@ import javax.ejb.Remote;
 import javax.ejb.Stateful;
 import org.w3c.dom.Document;
 import siebog.agents.AID;
+import siebog.agents.AIDPool;
 import siebog.agents.Agent;
 import siebog.utils.ObjectFactory;
 
@@ -95,7 +96,7 @@ public class ExecutionControlBean implements ExecutionControl {
 
 	@Override
 	public void informAgToPerformCycle(String agName, int cycle) {
-		List<AID> aid = Collections.singletonList(new AID(agName));
+		List<AID> aid = Collections.singletonList(AIDPool.fromJson(agName));
 		ReasoningCycleMessage msg = new ReasoningCycleMessage(aid, cycle);
 		ObjectFactory.getMessageManager().post(msg);
 	}
@@ -23,6 +23,7 @@ package siebog.jasonee.control;
 import java.util.Collection;
 import siebog.agents.AID;
 import siebog.interaction.ACLMessage;
+import siebog.interaction.MessagePriority;
 import siebog.interaction.Performative;
 
 /**
@@ -36,6 +37,7 @@ public class ReasoningCycleMessage extends ACLMessage {
 
 	public ReasoningCycleMessage(Collection<AID> receivers, int cycleNum) {
 		super(Performative.REQUEST);
+		priority = MessagePriority.HIGH;
 		this.receivers.addAll(receivers);
 		this.cycleNum = cycleNum;
 	}
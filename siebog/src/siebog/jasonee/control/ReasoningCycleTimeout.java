@@ -22,6 +22,7 @@ package siebog.jasonee.control;
 
 import siebog.agents.AID;
 import siebog.interaction.ACLMessage;
+import siebog.interaction.MessagePriority;
 import siebog.interaction.Performative;
 
 /**
@@ -35,6 +36,7 @@ public class ReasoningCycleTimeout extends ACLMessage {
 
 	public ReasoningCycleTimeout(AID aid, int cycleNum) {
 		super(Performative.INFORM);
+		priority = MessagePriority.HIGH;
 		receivers.add(aid);
 		this.cycleNum = cycleNum;
 	}
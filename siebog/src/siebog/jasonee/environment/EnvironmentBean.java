@@ -36,6 +36,7 @@ import java.util.List;
 import javax.ejb.Remote;
 import javax.ejb.Stateful;
 import siebog.agents.AID;
+import siebog.agents.AIDPool;
 import siebog.interaction.ACLMessage;
 import siebog.utils.ObjectFactory;
 
@@ -66,7 +67,7 @@ public class EnvironmentBean implements Environment {
 
 	@Override
 	public void actionExecuted(String agName, Structure actTerm, boolean success, Object infraData) {
-		ACLMessage msg = new ActionFeedbackMessage(new AID(agName), success, (String) infraData);
+		ACLMessage msg = new ActionFeedbackMessage(AIDPool.fromJson(agName), success, (String) infraData);
 		ObjectFactory.getMessageManager().post(msg);
 	}
 
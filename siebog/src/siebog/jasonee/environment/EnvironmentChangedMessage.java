@@ -20,7 +20,7 @@
 
 package siebog.jasonee.environment;
 
-import siebog.agents.AID;
+import siebog.agents.AIDPool;
 import siebog.interaction.ACLMessage;
 import siebog.interaction.Performative;
 
@@ -31,11 +31,15 @@ import siebog.interaction.Performative;
  */
 public class EnvironmentChangedMessage extends ACLMessage {
 	private static final long serialVersionUID = 1L;
+	// an agent only needs to know that the environment has changed since its last perception,
+	// so a burst of notifications can be collapsed into one
+	public static final String COALESCE_KEY = "jasonee.environment-changed";
 
 	public EnvironmentChangedMessage(String... agents) {
 		super(Performative.INFORM);
+		coalesceKey = COALESCE_KEY;
 		for (String ag : agents)
-			receivers.add(new AID(ag));
+			receivers.add(AIDPool.fromJson(ag));
 	}
 
 }
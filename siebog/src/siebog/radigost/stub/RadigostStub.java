@@ -20,6 +20,7 @@
 
 package siebog.radigost.stub;
 
+import java.io.Serializable;
 import javax.ejb.Remote;
 import javax.ejb.Stateful;
 import javax.enterprise.event.Event;
@@ -30,6 +31,7 @@ import javax.script.ScriptException;
 import siebog.agents.Agent;
 import siebog.agents.AgentClass;
 import siebog.agents.AgentInitArgs;
+import siebog.agents.Passivation;
 import siebog.agents.XjafAgent;
 import siebog.interaction.ACLMessage;
 
@@ -41,6 +43,7 @@ import siebog.interaction.ACLMessage;
  */
 @Stateful
 @Remote(Agent.class)
+@Passivation
 public class RadigostStub extends XjafAgent {
 	private static final long serialVersionUID = 1L;
 	// for speed purposes
@@ -71,6 +74,22 @@ public class RadigostStub extends XjafAgent {
 		}
 	}
 
+	@Override
+	public long getPassivationTimeout() {
+		// the state of a server-side JS agent lives in the script engine, and cannot be restored
+		return emptyStub ? super.getPassivationTimeout() : 0;
+	}
+
+	@Override
+	protected Serializable onPassivate() {
+		return null;
+	}
+
+	@Override
+	protected void onActivate(Serializable state) {
+		emptyStub = true;
+	}
+
 	private void loadJsAgent(String url, String state) {
 		try {
 			invocable = new ScriptLoader().load(url, state);
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.utils;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * Remembers recently seen keys for a limited time. Memory use is bounded both by the time window
+ * and by the maximum number of keys; once full, the oldest keys are forgotten first, so a very
+ * late duplicate may go unnoticed, but the structure never grows without bound.
+ */
+public class DedupWindow {
+	private final long windowMillis;
+	private final int maxKeys;
+	// key -> time it was added, and the same keys in the order they were added
+	private final HashMap<String, Long> seen = new HashMap<>();
+	private final ArrayDeque<String> order = new ArrayDeque<>();
+
+	public DedupWindow(long windowMillis, int maxKeys) {
+		if (windowMillis <= 0 || maxKeys <= 0)
+			throw new IllegalArgumentException("Window size and maximum number of keys must be "
+					+ "positive.");
+		this.windowMillis = windowMillis;
+		this.maxKeys = maxKeys;
+	}
+
+	/**
+	 * @return False if the key has already been added within the window.
+	 */
+	public synchronized boolean add(String key, long now) {
+		expire(now);
+		if (seen.containsKey(key))
+			return false;
+		while (seen.size() >= maxKeys)
+			seen.remove(order.poll());
+		seen.put(key, now);
+		order.add(key);
+		return true;
+	}
+
+	/**
+	 * Forgets the key, e.g. if processing of the first copy failed and it should be accepted when
+	 * redelivered.
+	 */
+	public synchronized void remove(String key) {
+		if (seen.remove(key) != null)
+			// usually among the most recent keys, so the search from the tail is short
+			order.removeLastOccurrence(key);
+	}
+
+	public synchronized int size() {
+		return seen.size();
+	}
+
+	private void expire(long now) {
+		final long oldest = now - windowMillis;
+		String key;
+		while ((key = order.peek()) != null) {
+			if (seen.get(key) > oldest)
+				break;
+			order.poll();
+			seen.remove(key);
+		}
+	}
+}
@@ -27,13 +27,18 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.ejb.LocalBean;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
 import javax.ejb.Singleton;
 import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.enterprise.concurrent.ManagedScheduledExecutorService;
 import siebog.agents.AID;
 import siebog.agents.HeartbeatMessage;
+import siebog.utils.HashedWheelTimer.Timeout;
 
 /**
  * Wrapper around (managed) executor services.
@@ -42,13 +47,33 @@ import siebog.agents.HeartbeatMessage;
  */
 @Singleton
 @LocalBean
+@Lock(LockType.READ)
 public class ExecutorService {
+	private static final long TICK_MILLIS = 10;
 	@Resource(lookup = "java:jboss/ee/concurrency/executor/default")
 	private ManagedExecutorService executor;
 	@Resource(lookup = "java:jboss/ee/concurrency/scheduler/default")
 	private ManagedScheduledExecutorService scheduler;
 	private AtomicLong hbCounter = new AtomicLong();
 	private Map<Long, HeartbeatMessage> heartbeats = Collections.synchronizedMap(new HashMap<Long, HeartbeatMessage>());
+	private HashedWheelTimer timer;
+	private ScheduledFuture<?> ticker;
+
+	@PostConstruct
+	public void postConstruct() {
+		timer = new HashedWheelTimer(TICK_MILLIS, 256, System.currentTimeMillis());
+		ticker = schedule(new Runnable() {
+			@Override
+			public void run() {
+				timer.advance(System.currentTimeMillis());
+			}
+		}, TICK_MILLIS, TICK_MILLIS);
+	}
+
+	@PreDestroy
+	public void preDestroy() {
+		ticker.cancel(false);
+	}
 
 	public Future<?> execute(Runnable task) {
 		return executor.submit(task);
@@ -76,6 +101,15 @@ public class ExecutorService {
 		}, delayMillis);
 	}
 
+	/**
+	 * Schedules a lightweight, cancellable timeout. Unlike {@link #execute(Runnable, long)}, the
+	 * task is run by the timer thread itself, with a precision of 10ms, so it should only hand
+	 * work off to other components.
+	 */
+	public Timeout newTimeout(Runnable task, long delayMillis) {
+		return timer.schedule(task, delayMillis);
+	}
+
 	public ScheduledFuture<?> schedule(Runnable task, long initialDelayMillis, long periodMillis) {
 		return scheduler.scheduleAtFixedRate(task, initialDelayMillis, periodMillis, TimeUnit.MILLISECONDS);
 	}
@@ -4,6 +4,8 @@ import org.infinispan.Cache;
 import org.infinispan.manager.CacheContainer;
 import siebog.agents.AID;
 import siebog.agents.Agent;
+import siebog.agents.ShardGroup;
+import siebog.interaction.Subscription;
 import siebog.jasonee.control.ExecutionControl;
 import siebog.jasonee.environment.Environment;
 
@@ -14,6 +16,11 @@ public class GlobalCache {
 	private static final String RUNNING_AGENTS = "running-agents";
 	private static final String EXECUTION_CONTROLS = "execution-controls";
 	private static final String ENVIRONMENTS = "environments";
+	private static final String TOPICS = "topics";
+	private static final String AGENT_HOSTS = "agent-hosts";
+	private static final String CLUSTER_NODES = "cluster-nodes";
+	private static final String SHARDED_AGENTS = "sharded-agents";
+	private static final String DELIVERED_MESSAGES = "delivered-messages";
 
 	public static GlobalCache get() {
 		if (instance == null) {
@@ -41,6 +48,26 @@ public class GlobalCache {
 		return cacheContainer.getCache(ENVIRONMENTS);
 	}
 
+	public Cache<Subscription, Boolean> getTopics() {
+		return cacheContainer.getCache(TOPICS);
+	}
+
+	public Cache<AID, String> getAgentHosts() {
+		return cacheContainer.getCache(AGENT_HOSTS);
+	}
+
+	public Cache<String, String> getClusterNodes() {
+		return cacheContainer.getCache(CLUSTER_NODES);
+	}
+
+	public Cache<AID, ShardGroup> getShardedAgents() {
+		return cacheContainer.getCache(SHARDED_AGENTS);
+	}
+
+	public Cache<String, String> getDeliveredMessages() {
+		return cacheContainer.getCache(DELIVERED_MESSAGES);
+	}
+
 	public Cache<?, ?> getCache(String name) {
 		return cacheContainer.getCache(name);
 	}
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent-hash ring. Each node is placed on the ring at a number of pseudo-random
+ * points, and a key belongs to the node at the first point following the key's hash. Adding or
+ * removing a node only moves the keys of that node.
+ */
+public class HashRing {
+	public static final int DEFAULT_REPLICAS = 64;
+	private final TreeMap<Integer, String> ring = new TreeMap<>();
+	private final Set<String> nodes;
+
+	public HashRing(Collection<String> nodes) {
+		this(nodes, DEFAULT_REPLICAS);
+	}
+
+	public HashRing(Collection<String> nodes, int replicas) {
+		if (replicas <= 0)
+			throw new IllegalArgumentException("Number of replicas must be positive.");
+		this.nodes = Collections.unmodifiableSet(new TreeSet<>(nodes));
+		for (String node : this.nodes)
+			for (int i = 0; i < replicas; i++)
+				ring.put(hash(node + "#" + i), node);
+	}
+
+	/**
+	 * @return The node owning the key, or null if the ring is empty.
+	 */
+	public String get(String key) {
+		if (ring.isEmpty())
+			return null;
+		Map.Entry<Integer, String> e = ring.ceilingEntry(hash(key));
+		return e != null ? e.getValue() : ring.firstEntry().getValue();
+	}
+
+	public Set<String> getNodes() {
+		return nodes;
+	}
+
+	public boolean isEmpty() {
+		return nodes.isEmpty();
+	}
+
+	// 32-bit FNV-1a with a final avalanche, String.hashCode() clusters similar names
+	static int hash(String key) {
+		int h = 0x811c9dc5;
+		for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+			h ^= b;
+			h *= 0x01000193;
+		}
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
@@ -0,0 +1,294 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hierarchical timing wheel, for large numbers of short-lived timeouts, most of which are
+ * cancelled before they expire. Scheduling and cancelling are O(1) and can be done from any
+ * thread, while expired tasks are run by whoever periodically calls {@link #advance(long)}.
+ * 
+ * The lowest wheel covers one tick per bucket, and each higher one covers a full revolution of
+ * the wheel below it. A timeout is placed into the lowest wheel that can hold it, and moved down
+ * as its deadline approaches, so long delays do not need to be revisited on every revolution.
+ * Timeouts are rounded up to the tick duration.
+ * 
+ * Each bucket is a doubly-linked list of its timeouts. Cancelled timeouts are unlinked from
+ * their buckets on the next call to {@link #advance(long)}, so that timeouts cancelled long
+ * before their deadlines do not pile up.
+ */
+public class HashedWheelTimer {
+	private static final Logger LOG = LoggerFactory.getLogger(HashedWheelTimer.class);
+	// the wheels together cover at least 2^MAX_TICK_BITS ticks, longer delays are truncated
+	private static final int MAX_TICK_BITS = 40;
+	private final long tickMillis;
+	private final long startMillis;
+	private final Bucket[][] wheels;
+	private final int bits;
+	private final int mask;
+	private final long maxDelta;
+	private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+	private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+	// number of ticks processed so far
+	private long tick;
+
+	/**
+	 * @param wheelSize Number of buckets per wheel, rounded up to the nearest power of 2.
+	 */
+	public HashedWheelTimer(long tickMillis, int wheelSize, long startMillis) {
+		if (tickMillis <= 0)
+			throw new IllegalArgumentException("Tick duration must be positive.");
+		if (wheelSize <= 1 || wheelSize > (1 << 16))
+			throw new IllegalArgumentException("Invalid wheel size: " + wheelSize);
+		this.tickMillis = tickMillis;
+		this.startMillis = startMillis;
+		bits = 32 - Integer.numberOfLeadingZeros(wheelSize - 1);
+		mask = (1 << bits) - 1;
+		final int levels = (MAX_TICK_BITS + bits - 1) / bits;
+		maxDelta = (1L << (bits * levels)) - 1;
+		wheels = new Bucket[levels][1 << bits];
+		for (Bucket[] wheel : wheels)
+			for (int i = 0; i < wheel.length; i++)
+				wheel[i] = new Bucket();
+	}
+
+	/**
+	 * Schedules the task to run once the given time has elapsed.
+	 */
+	public Timeout schedule(Runnable task, long delayMillis) {
+		return scheduleAt(task, System.currentTimeMillis() + Math.max(delayMillis, 0));
+	}
+
+	/**
+	 * Schedules the task to run at the given point in time.
+	 */
+	public Timeout scheduleAt(Runnable task, long deadlineMillis) {
+		Timeout t = new Timeout(this, task, deadlineMillis);
+		pending.add(t);
+		return t;
+	}
+
+	/**
+	 * Processes all ticks up to the given time, running the expired tasks in the calling thread.
+	 * Should be called periodically, preferably once per tick, by a single thread at a time.
+	 */
+	public synchronized void advance(long nowMillis) {
+		final long target = (nowMillis - startMillis) / tickMillis;
+		while (tick <= target) {
+			removeCancelled();
+			transferPending();
+			cascade();
+			expire(wheels[0][(int) (tick & mask)]);
+			++tick;
+		}
+	}
+
+	/**
+	 * @return Approximate number of scheduled timeouts which have not expired yet.
+	 */
+	public synchronized int size() {
+		int n = pending.size();
+		for (Bucket[] wheel : wheels)
+			for (Bucket bucket : wheel)
+				n += bucket.size;
+		return n;
+	}
+
+	private void removeCancelled() {
+		Timeout t;
+		while ((t = cancelled.poll()) != null) {
+			// still pending timeouts are skipped when transferred
+			if (t.bucket != null)
+				t.bucket.remove(t);
+		}
+	}
+
+	private void transferPending() {
+		Timeout t;
+		while ((t = pending.poll()) != null) {
+			if (!t.isCancelled())
+				place(t);
+		}
+	}
+
+	private void place(Timeout t) {
+		// never place a timeout into a bucket that has already been passed
+		t.ticks = Math.max((t.deadline - startMillis + tickMillis - 1) / tickMillis, tick);
+		final long ticks = Math.min(t.ticks, tick + maxDelta);
+		// the highest digit in which the deadline differs from the current tick selects the wheel
+		long diff = ticks ^ tick;
+		int level = diff == 0 ? 0 : (63 - Long.numberOfLeadingZeros(diff)) / bits;
+		if (level >= wheels.length) {
+			// possible only when the truncated deadline crosses the top wheel's boundary
+			level = wheels.length - 1;
+		}
+		wheels[level][(int) ((ticks >>> (bits * level)) & mask)].add(t);
+	}
+
+	/**
+	 * Whenever a wheel completes a revolution, moves the timeouts from the next bucket of the
+	 * wheel above it into lower wheels.
+	 */
+	private void cascade() {
+		for (int level = wheels.length - 1; level > 0; level--) {
+			if ((tick & ((1L << (bits * level)) - 1)) != 0)
+				continue;
+			Bucket bucket = wheels[level][(int) ((tick >>> (bits * level)) & mask)];
+			Timeout t = bucket.clear();
+			while (t != null) {
+				Timeout next = t.next;
+				t.next = null;
+				if (!t.isCancelled())
+					place(t);
+				t = next;
+			}
+		}
+	}
+
+	private void expire(Bucket bucket) {
+		Timeout remaining = null;
+		Timeout t = bucket.clear();
+		while (t != null) {
+			Timeout next = t.next;
+			t.next = null;
+			if (t.ticks > tick && !t.isCancelled()) {
+				// truncated beyond the range of the wheels, needs another pass
+				t.next = remaining;
+				remaining = t;
+			} else if (t.ticks <= tick && t.expire()) {
+				try {
+					t.task.run();
+				} catch (Exception ex) {
+					LOG.warn("Error in timer task.", ex);
+				}
+			}
+			t = next;
+		}
+		while (remaining != null) {
+			Timeout next = remaining.next;
+			remaining.next = null;
+			place(remaining);
+			remaining = next;
+		}
+	}
+
+	/**
+	 * Doubly-linked list of timeouts, accessed only by the thread advancing the timer.
+	 */
+	private static final class Bucket {
+		private Timeout head;
+		private Timeout tail;
+		private int size;
+
+		void add(Timeout t) {
+			t.bucket = this;
+			t.prev = tail;
+			if (tail == null)
+				head = t;
+			else
+				tail.next = t;
+			tail = t;
+			++size;
+		}
+
+		void remove(Timeout t) {
+			if (t.prev == null)
+				head = t.next;
+			else
+				t.prev.next = t.next;
+			if (t.next == null)
+				tail = t.prev;
+			else
+				t.next.prev = t.prev;
+			t.prev = t.next = null;
+			t.bucket = null;
+			--size;
+		}
+
+		/**
+		 * Empties the bucket.
+		 * 
+		 * @return The first of its former timeouts, still linked through their next fields.
+		 */
+		Timeout clear() {
+			Timeout first = head;
+			for (Timeout t = head; t != null; t = t.next) {
+				t.prev = null;
+				t.bucket = null;
+			}
+			head = tail = null;
+			size = 0;
+			return first;
+		}
+	}
+
+	/**
+	 * Handle of a scheduled task.
+	 */
+	public static class Timeout {
+		private static final int PENDING = 0;
+		private static final int CANCELLED = 1;
+		private static final int EXPIRED = 2;
+		private final HashedWheelTimer timer;
+		private final Runnable task;
+		private final long deadline;
+		private final AtomicInteger state = new AtomicInteger(PENDING);
+		// tick at which the timeout is due, set once it leaves the pending queue
+		private long ticks;
+		// position in a bucket, accessed only by the thread advancing the timer
+		private Bucket bucket;
+		private Timeout prev;
+		private Timeout next;
+
+		private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+			this.timer = timer;
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * @return True if the task was cancelled, false if it has already been run or cancelled.
+		 */
+		public boolean cancel() {
+			if (!state.compareAndSet(PENDING, CANCELLED))
+				return false;
+			timer.cancelled.add(this);
+			return true;
+		}
+
+		public boolean isCancelled() {
+			return state.get() == CANCELLED;
+		}
+
+		public boolean isExpired() {
+			return state.get() == EXPIRED;
+		}
+
+		private boolean expire() {
+			return state.compareAndSet(PENDING, EXPIRED);
+		}
+	}
+}
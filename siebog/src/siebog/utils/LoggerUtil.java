@@ -24,7 +24,7 @@ public class LoggerUtil {
 	private static List<Session> sessions = new ArrayList<Session>();
 	private static final Logger LOG = LoggerFactory.getLogger(AgentManagerBean.class);
 	
-	public enum SocketMessageType {LOG, ADD, REMOVE};
+	public enum SocketMessageType {LOG, ADD, REMOVE, ADD_ALL, REMOVE_ALL};
 	
 	public static void log(String message) {
 		log(message, false);
@@ -74,6 +74,35 @@ public class LoggerUtil {
 		}
     }
     
+    /**
+     * Same as {@link #logAgent(AID, SocketMessageType)}, but for a number of agents at once.
+     * @param agents - the agents being stopped or started
+     * @param type   - ADD_ALL or REMOVE_ALL
+     */
+    public static void logAgents(List<AID> agents, SocketMessageType type) {
+    	StringBuilder data = new StringBuilder("[");
+    	for (int i = 0; i < agents.size(); i++) {
+    		if (i > 0)
+    			data.append(',');
+    		data.append(agents.get(i));
+    	}
+    	data.append(']');
+    	try {
+    		JSONObject obj = new JSONObject();
+	    	obj.put("type", type);
+	    	obj.put("data", data.toString());
+		    for(Session s : sessions) {
+		    	try {
+		    		s.getBasicRemote().sendText(obj.toString());
+		    	} catch(Exception e) {
+		    		LOG.error(e.getMessage());
+		    	}
+		    }
+		} catch (JSONException e) {
+			LOG.error(e.getMessage());
+		}
+    }
+    
     @OnOpen
     public void register(Session session) {
        	sessions.add(session);
@@ -20,20 +20,29 @@
 
 package siebog.utils;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.ejb.SessionContext;
 import javax.naming.NamingException;
 import siebog.agents.Agent;
 import siebog.agents.AgentManager;
 import siebog.agents.AgentManagerBean;
 import siebog.interaction.JMSFactory;
+import siebog.interaction.LocalDelivery;
 import siebog.interaction.MessageManager;
 import siebog.interaction.MessageManagerBean;
+import siebog.interaction.ReplyCorrelator;
 import siebog.jasonee.JasonEEStarter;
 import siebog.jasonee.JasonEEStarterImpl;
 import siebog.jasonee.RemoteObjectFactory;
 import siebog.radigost.WebClientManager;
 
 /**
+ * Looks up the framework's components. Results of lookups are cached by JNDI name, except for
+ * stateful beans, where each lookup creates a new instance, and java:comp names, which resolve
+ * differently for each component. Cached ejb: proxies don't pin a node, the EJB client selects
+ * one on each invocation, so they survive the failure of the node which they were obtained
+ * from.
  * 
  * @author <a href="mitrovic.dejan@gmail.com">Dejan Mitrovic</a>
  */
@@ -49,6 +58,11 @@ public abstract class ObjectFactory {
 			+ "?stateful";
 	public static final String JMSFactoryLookup = "java:app/" + Agent.SIEBOG_MODULE + "/"
 			+ JMSFactory.class.getSimpleName();
+	public static final String LocalDeliveryLookup = "java:app/" + Agent.SIEBOG_MODULE + "/"
+			+ LocalDelivery.class.getSimpleName();
+	public static final String ReplyCorrelatorLookup = "java:app/" + Agent.SIEBOG_MODULE + "/"
+			+ ReplyCorrelator.class.getSimpleName();
+	private static final Map<String, Object> cache = new ConcurrentHashMap<>();
 
 	public static AgentManager getAgentManager() {
 		return lookup(AgentManagerLookup, AgentManager.class);
@@ -87,12 +101,50 @@ public abstract class ObjectFactory {
 		return lookup(JMSFactoryLookup, JMSFactory.class);
 	}
 
+	public static LocalDelivery getLocalDelivery() {
+		return lookup(LocalDeliveryLookup, LocalDelivery.class);
+	}
+
+	public static ReplyCorrelator getReplyCorrelator() {
+		return lookup(ReplyCorrelatorLookup, ReplyCorrelator.class);
+	}
+
 	@SuppressWarnings("unchecked")
 	public static <T> T lookup(String name, Class<T> c) {
+		boolean cacheable = isCacheable(name);
+		if (cacheable) {
+			Object obj = cache.get(name);
+			if (obj != null) {
+				return (T) obj;
+			}
+		}
 		try {
-			return (T) ContextFactory.get().lookup(name);
+			Object obj = ContextFactory.get().lookup(name);
+			if (cacheable && obj != null) {
+				cache.put(name, obj);
+			}
+			return (T) obj;
 		} catch (NamingException ex) {
 			throw new IllegalStateException("Failed to lookup " + name, ex);
 		}
 	}
+
+	/**
+	 * Removes the result of a previous lookup from the cache, e.g. if it no longer works.
+	 */
+	public static void invalidate(String name) {
+		cache.remove(name);
+	}
+
+	/**
+	 * Removes all cached lookups, e.g. after (re)connecting to the cluster, or when a redeploy
+	 * has been detected.
+	 */
+	public static void invalidateAll() {
+		cache.clear();
+	}
+
+	private static boolean isCacheable(String name) {
+		return !name.contains("?stateful") && !name.startsWith("java:comp");
+	}
 }
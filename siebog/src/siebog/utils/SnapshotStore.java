@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.utils;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import siebog.agents.AID;
+
+/**
+ * File-backed store of agent snapshots, one file per agent. Snapshots are written to a temporary
+ * file first and then moved into place, so that a crash never leaves a partial snapshot behind.
+ */
+public class SnapshotStore {
+	private final Path dir;
+
+	public SnapshotStore(Path dir) throws IOException {
+		this.dir = Files.createDirectories(dir);
+	}
+
+	public void write(AID aid, byte[] snapshot) throws IOException {
+		Path file = getFile(aid);
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.write(tmp, snapshot);
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @return The snapshot, or null if there is none.
+	 */
+	public byte[] read(AID aid) throws IOException {
+		try {
+			return Files.readAllBytes(getFile(aid));
+		} catch (NoSuchFileException ex) {
+			return null;
+		}
+	}
+
+	public void delete(AID aid) throws IOException {
+		Files.deleteIfExists(getFile(aid));
+	}
+
+	/**
+	 * Removes all snapshots, including partially written ones.
+	 * 
+	 * @return Number of removed files.
+	 */
+	public int clear() throws IOException {
+		int n = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for (Path file : files) {
+				Files.deleteIfExists(file);
+				++n;
+			}
+		}
+		return n;
+	}
+
+	private Path getFile(AID aid) {
+		try {
+			return dir.resolve(URLEncoder.encode(aid.getStr(), "UTF-8"));
+		} catch (UnsupportedEncodingException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
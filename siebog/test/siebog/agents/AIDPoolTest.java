@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.agents;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.junit.Test;
+
+public class AIDPoolTest {
+	private static final AgentClass AG_CLASS = new AgentClass("siebog", "Ping");
+
+	@Test
+	public void testIntern() {
+		AID a = AIDPool.intern(new AID("intern", AG_CLASS));
+		AID b = AIDPool.intern(new AID("intern", AG_CLASS));
+		assertSame(a, b);
+		assertSame(a, AIDPool.canonical(new AID("intern", AG_CLASS)));
+		AIDPool.release(a);
+	}
+
+	@Test
+	public void testFromJson() {
+		AID a = AIDPool.intern(new AID("json", AG_CLASS));
+		String json = a.toString();
+		assertSame(json, a.toString());
+		assertSame(a, AIDPool.fromJson(json));
+		AIDPool.release(a);
+		AID b = AIDPool.fromJson(json);
+		assertEquals(a, b);
+		AIDPool.release(b);
+	}
+
+	@Test
+	public void testRelease() {
+		AID a = AIDPool.intern(new AID("release", AG_CLASS));
+		int size = AIDPool.size();
+		AIDPool.release(a);
+		assertEquals(size - 1, AIDPool.size());
+		assertNotSame(a, AIDPool.canonical(new AID("release", AG_CLASS)));
+		AID b = AIDPool.intern(new AID("release", AG_CLASS));
+		assertNotSame(a, b);
+		AIDPool.release(b);
+	}
+
+	@Test
+	public void testDeserializedIsCanonical() throws Exception {
+		AID a = AIDPool.intern(new AID("serial", AG_CLASS));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(a);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(
+				bytes.toByteArray()))) {
+			assertSame(a, in.readObject());
+		}
+		AIDPool.release(a);
+	}
+
+	@Test
+	public void testLookupDoesNotIntern() throws Exception {
+		int size = AIDPool.size();
+		AID a = new AID("unknown", AG_CLASS);
+		assertSame(a, AIDPool.canonical(a));
+		AIDPool.fromJson(a.toString());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(a);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(
+				bytes.toByteArray()))) {
+			assertEquals(a, in.readObject());
+		}
+		assertEquals(size, AIDPool.size());
+	}
+}
@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.agents;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import siebog.interaction.ACLMessage;
+import siebog.interaction.Performative;
+
+public class ShardGroupTest {
+	private static final AgentClass AG_CLASS = new AgentClass("siebog", "Map");
+
+	@Test
+	public void testSameKeySameShard() {
+		ShardGroup group = newGroup(4);
+		Set<AID> used = new HashSet<>();
+		for (int i = 0; i < 100; i++) {
+			AID shard = group.select(msgFrom("sender" + i));
+			assertSame(shard, group.select(msgFrom("sender" + i)));
+			used.add(shard);
+		}
+		// keys are spread over all shards
+		assertEquals(4, used.size());
+	}
+
+	@Test
+	public void testNoKeyAnyShard() {
+		ShardGroup group = newGroup(3);
+		ACLMessage msg = new ACLMessage(Performative.INFORM);
+		for (int i = 0; i < 20; i++) {
+			assertTrue(group.getShards().contains(group.select(msg)));
+		}
+	}
+
+	@Test
+	public void testShardNames() {
+		String name = ShardGroup.getShardName("Map", 7);
+		assertEquals(7, ShardGroup.getShardIndex(name));
+		assertEquals(-1, ShardGroup.getShardIndex("Map"));
+		assertEquals(-1, ShardGroup.getShardIndex("Map#x"));
+	}
+
+	@Test
+	public void testSenderKeySerialization() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(ShardKey.BY_SENDER);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			assertSame(ShardKey.BY_SENDER, in.readObject());
+		}
+	}
+
+	private static ShardGroup newGroup(int n) {
+		List<AID> shards = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			shards.add(new AID(ShardGroup.getShardName("Map", i), AG_CLASS));
+		}
+		return new ShardGroup(new AID("Map", AG_CLASS), shards, ShardKey.BY_SENDER);
+	}
+
+	private static ACLMessage msgFrom(String sender) {
+		ACLMessage msg = new ACLMessage(Performative.INFORM);
+		msg.sender = new AID(sender, AG_CLASS);
+		return msg;
+	}
+}
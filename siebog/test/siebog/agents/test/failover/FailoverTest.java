@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.agents.test.failover;
+
+import siebog.SiebogClient;
+import siebog.agents.AID;
+import siebog.agents.Agent;
+import siebog.agents.AgentClass;
+import siebog.agents.AgentManager;
+import siebog.agents.test.TestProps;
+import siebog.interaction.ACLMessage;
+import siebog.interaction.MessageManager;
+import siebog.interaction.Performative;
+import siebog.utils.ObjectFactory;
+
+/**
+ * Checks that messages are neither lost nor delivered twice when a node fails. Run it against a
+ * cluster of at least two nodes, and kill a slave node (e.g. close its console) when asked to,
+ * while the messages are still being sent. Once all messages are sent, the SequenceCounter agent
+ * logs the number of missing and duplicate messages, both of which should be 0. The number of
+ * duplicates filtered out by each node is available at /rest/messages/stats.
+ */
+public class FailoverTest {
+	public static final String REPORT = "report";
+	private static final int NUM_MESSAGES = 10_000;
+	private static final int KILL_AT = NUM_MESSAGES / 4;
+
+	private void run() throws InterruptedException {
+		TestProps props = TestProps.get();
+		SiebogClient.connect(props.getMaster(), props.getSlaves());
+		AgentManager agm = ObjectFactory.getAgentManager();
+		MessageManager msm = ObjectFactory.getMessageManager();
+
+		AID counter = agm.startServerAgent(new AgentClass(Agent.SIEBOG_MODULE,
+				SequenceCounter.class.getSimpleName()), "SequenceCounter", null);
+
+		for (int i = 0; i < NUM_MESSAGES; i++) {
+			if (i == KILL_AT) {
+				System.out.println("Kill a slave node now, the test continues in 10 seconds.");
+			}
+			ACLMessage msg = new ACLMessage(Performative.INFORM);
+			msg.receivers.add(counter);
+			msg.content = String.valueOf(i);
+			msm.post(msg);
+			if (i >= KILL_AT && i < KILL_AT + 100) {
+				// slow down, so that the failure happens mid-stream
+				Thread.sleep(100);
+			}
+		}
+
+		ACLMessage report = new ACLMessage(Performative.REQUEST);
+		report.receivers.add(counter);
+		report.content = REPORT;
+		report.userArgs.put("total", NUM_MESSAGES);
+		// let any redeliveries arrive first
+		msm.post(report, 10_000);
+	}
+
+	public static void main(String[] args) {
+		try {
+			new FailoverTest().run();
+		} catch (Exception ex) {
+			ex.printStackTrace();
+		} finally {
+			System.exit(0);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.agents.test.failover;
+
+import java.util.BitSet;
+import javax.ejb.Remote;
+import javax.ejb.Stateful;
+import siebog.agents.Agent;
+import siebog.agents.XjafAgent;
+import siebog.interaction.ACLMessage;
+import siebog.utils.LoggerUtil;
+
+/**
+ * Receives numbered messages from {@link FailoverTest} and reports missing and duplicate ones.
+ */
+@Stateful
+@Remote(Agent.class)
+public class SequenceCounter extends XjafAgent {
+	private static final long serialVersionUID = 1L;
+	private BitSet received = new BitSet();
+	private int duplicates;
+
+	@Override
+	protected void onMessage(ACLMessage msg) {
+		if (FailoverTest.REPORT.equals(msg.content)) {
+			int total = Integer.parseInt(msg.userArgs.get("total").toString());
+			int missing = total - received.cardinality();
+			LoggerUtil.log("Failover test: " + received.cardinality() + " received, " + missing
+					+ " missing, " + duplicates + " duplicates.", true);
+			return;
+		}
+		int seq = Integer.parseInt(msg.content);
+		if (received.get(seq))
+			++duplicates;
+		else
+			received.set(seq);
+	}
+}
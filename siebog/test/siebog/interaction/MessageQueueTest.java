@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class MessageQueueTest {
+	@Test
+	public void testHighPriorityFirst() throws InterruptedException {
+		MessageQueue queue = new MessageQueue(10);
+		queue.offer(msg("n1", MessagePriority.NORMAL), 0, TimeUnit.MILLISECONDS);
+		queue.offer(msg("n2", MessagePriority.UNSET), 0, TimeUnit.MILLISECONDS);
+		queue.offer(msg("h1", MessagePriority.HIGH), 0, TimeUnit.MILLISECONDS);
+		assertEquals("h1", queue.poll().content);
+		assertEquals("n1", queue.poll().content);
+		assertEquals("n2", queue.poll().content);
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void testDerivedPriority() {
+		assertTrue(MessagePriority.isHigh(new ACLMessage(Performative.CANCEL)));
+		assertFalse(MessagePriority.isHigh(new ACLMessage(Performative.INFORM)));
+		ACLMessage msg = new ACLMessage(Performative.CANCEL);
+		msg.priority = MessagePriority.LOW;
+		assertFalse(MessagePriority.isHigh(msg));
+		msg.priority = 100;
+		assertEquals(MessagePriority.MAX, MessagePriority.of(msg));
+	}
+
+	@Test
+	public void testNoStarvation() throws InterruptedException {
+		MessageQueue queue = new MessageQueue(100);
+		queue.offer(msg("n", MessagePriority.NORMAL), 0, TimeUnit.MILLISECONDS);
+		for (int i = 0; i < 20; i++)
+			queue.offer(msg("h", MessagePriority.HIGH), 0, TimeUnit.MILLISECONDS);
+		List<ACLMessage> taken = new ArrayList<>();
+		queue.drainTo(taken, 100);
+		assertEquals(21, taken.size());
+		assertEquals("n", taken.get(MessageQueue.MAX_HIGH_STREAK).content);
+	}
+
+	@Test
+	public void testLanesHaveSeparateCapacity() throws InterruptedException {
+		MessageQueue queue = new MessageQueue(2);
+		assertTrue(queue.offer(msg("n1", MessagePriority.NORMAL), 0, TimeUnit.MILLISECONDS));
+		assertTrue(queue.offer(msg("n2", MessagePriority.NORMAL), 0, TimeUnit.MILLISECONDS));
+		assertFalse(queue.offer(msg("n3", MessagePriority.NORMAL), 10, TimeUnit.MILLISECONDS));
+		assertTrue(queue.offer(msg("h1", MessagePriority.HIGH), 0, TimeUnit.MILLISECONDS));
+		assertEquals(3, queue.size());
+	}
+
+	@Test
+	public void testBlockingPoll() throws InterruptedException {
+		final MessageQueue queue = new MessageQueue(2);
+		assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+		Thread producer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+					queue.offer(msg("n", MessagePriority.NORMAL), 0, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException ex) {
+				}
+			}
+		};
+		producer.start();
+		assertEquals("n", queue.poll(5, TimeUnit.SECONDS).content);
+		producer.join();
+	}
+
+	@Test
+	public void testCoalescing() throws InterruptedException {
+		MessageQueue queue = new MessageQueue(2);
+		queue.offer(msg("a1", MessagePriority.NORMAL, "a"), 0, TimeUnit.MILLISECONDS);
+		queue.offer(msg("n", MessagePriority.NORMAL, null), 0, TimeUnit.MILLISECONDS);
+		// the lane is full, but the replacement takes no extra space
+		assertTrue(queue.offer(msg("a2", MessagePriority.NORMAL, "a"), 0, TimeUnit.MILLISECONDS));
+		assertTrue(queue.offer(msg("a3", MessagePriority.NORMAL, "a"), 0, TimeUnit.MILLISECONDS));
+		assertEquals(2, queue.size());
+		assertEquals(2, queue.getCoalesced());
+		assertEquals("a3", queue.poll().content);
+		assertEquals("n", queue.poll().content);
+		assertNull(queue.poll());
+		// once taken, the key starts over
+		queue.offer(msg("a4", MessagePriority.NORMAL, "a"), 0, TimeUnit.MILLISECONDS);
+		assertEquals("a4", queue.poll().content);
+	}
+
+	@Test
+	public void testCoalescingPerLane() throws InterruptedException {
+		MessageQueue queue = new MessageQueue(10);
+		queue.offer(msg("n1", MessagePriority.NORMAL, "k"), 0, TimeUnit.MILLISECONDS);
+		queue.offer(msg("h1", MessagePriority.HIGH, "k"), 0, TimeUnit.MILLISECONDS);
+		queue.offer(msg("n2", MessagePriority.NORMAL, "k"), 0, TimeUnit.MILLISECONDS);
+		assertEquals("h1", queue.poll().content);
+		assertEquals("n2", queue.poll().content);
+		assertEquals(1, queue.getCoalesced());
+	}
+
+	private static ACLMessage msg(String content, int priority, String coalesceKey) {
+		ACLMessage msg = msg(content, priority);
+		msg.coalesceKey = coalesceKey;
+		return msg;
+	}
+
+	private static ACLMessage msg(String content, int priority) {
+		ACLMessage msg = new ACLMessage(Performative.INFORM);
+		msg.content = content;
+		msg.priority = priority;
+		return msg;
+	}
+}
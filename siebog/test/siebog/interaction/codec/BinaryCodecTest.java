@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import org.junit.Test;
+import siebog.agents.AID;
+import siebog.agents.AgentClass;
+import siebog.interaction.ACLMessage;
+import siebog.interaction.MessagePriority;
+import siebog.interaction.Performative;
+
+public class BinaryCodecTest {
+	public static class Point implements Serializable {
+		private static final long serialVersionUID = 1L;
+		final int x;
+		final int y;
+
+		public Point(int x, int y) {
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	static {
+		BinaryCodec.registerContentType(100, Point.class, new ContentEncoder<Point>() {
+			@Override
+			public void write(Point value, DataOutput out) throws IOException {
+				out.writeInt(value.x);
+				out.writeInt(value.y);
+			}
+
+			@Override
+			public Point read(DataInput in) throws IOException {
+				return new Point(in.readInt(), in.readInt());
+			}
+		});
+	}
+
+	private final BinaryCodec codec = new BinaryCodec();
+	private final AgentClass agClass = new AgentClass("siebog", "Ping", "/siebog/agents/xjaf");
+	private final AID sender = new AID("sender", "xjaf", agClass);
+	private final AID receiver = new AID("receiver", "node1", agClass);
+
+	@Test
+	public void testAllFields() throws IOException {
+		ACLMessage msg = new ACLMessage(Performative.QUERY_REF);
+		msg.sender = sender;
+		msg.receivers.add(receiver);
+		msg.receivers.add(sender);
+		msg.replyTo = new AID("replyTo", "xjaf", new AgentClass("other", "Pong"));
+		msg.content = "content \u0161\u0111\u010d\u0107\u017e";
+		msg.language = "language";
+		msg.encoding = "encoding";
+		msg.ontology = "ontology";
+		msg.protocol = "protocol";
+		msg.conversationId = "conversation";
+		msg.replyWith = "replyWith";
+		msg.inReplyTo = "inReplyTo";
+		msg.replyBy = System.currentTimeMillis();
+		msg.priority = MessagePriority.HIGH;
+		assertMessageEquals(msg, roundTrip(msg));
+	}
+
+	@Test
+	public void testEmptyMessage() throws IOException {
+		ACLMessage msg = new ACLMessage();
+		ACLMessage result = roundTrip(msg);
+		assertMessageEquals(msg, result);
+		assertTrue(result.receivers.isEmpty());
+		assertTrue(result.userArgs.isEmpty());
+		assertNull(result.sender);
+		assertNull(result.content);
+	}
+
+	@Test
+	public void testAidsAreWrittenOnce() throws IOException {
+		ACLMessage msg = new ACLMessage(Performative.INFORM);
+		msg.sender = sender;
+		for (int i = 0; i < 100; i++)
+			msg.receivers.add(receiver);
+		msg.contentObj = sender;
+		ACLMessage result = roundTrip(msg);
+		assertMessageEquals(msg, result);
+		assertSame(result.sender, result.contentObj);
+		assertSame(result.receivers.get(0), result.receivers.get(99));
+		// the AID table holds two entries, each receiver is a single byte
+		ACLMessage single = new ACLMessage(Performative.INFORM);
+		single.sender = sender;
+		single.receivers.add(receiver);
+		single.contentObj = sender;
+		assertEquals(codec.encode(single).length + 99, codec.encode(msg).length);
+	}
+
+	@Test
+	public void testUserArgs() throws IOException {
+		ACLMessage msg = new ACLMessage(Performative.INFORM);
+		msg.userArgs.put("string", "value");
+		msg.userArgs.put("int", -42);
+		msg.userArgs.put("long", Long.MIN_VALUE);
+		msg.userArgs.put("bool", true);
+		msg.userArgs.put("double", Math.PI);
+		msg.userArgs.put("aid", receiver);
+		msg.userArgs.put("null", null);
+		msg.userArgs.put("list", new java.util.ArrayList<>(Arrays.asList(1, 2, 3)));
+		ACLMessage result = roundTrip(msg);
+		assertEquals(msg.userArgs, result.userArgs);
+	}
+
+	@Test
+	public void testRegisteredContentType() throws IOException {
+		ACLMessage msg = new ACLMessage(Performative.INFORM);
+		msg.contentObj = new Point(3, -7);
+		Point p = (Point) roundTrip(msg).contentObj;
+		assertEquals(3, p.x);
+		assertEquals(-7, p.y);
+		// smaller than the serialized form
+		assertTrue(codec.encode(msg).length < Serialization.serialize(msg.contentObj).length);
+	}
+
+	@Test
+	public void testSerializedContent() throws IOException {
+		ACLMessage msg = new ACLMessage(Performative.INFORM);
+		msg.contentObj = new int[] { 1, 2, 3 };
+		assertArrayEquals((int[]) msg.contentObj, (int[]) roundTrip(msg).contentObj);
+	}
+
+	@Test
+	public void testSmallerThanJavaSerialization() throws IOException {
+		ACLMessage msg = new ACLMessage(Performative.REQUEST);
+		msg.sender = sender;
+		msg.receivers.add(receiver);
+		msg.content = "PheromoneLevels? 1 2 3 4";
+		int binary = codec.encode(msg).length;
+		int java = new JavaSerializationCodec().encode(msg).length;
+		assertTrue(binary * 4 < java);
+	}
+
+	@Test
+	public void testCompatibleWithJavaSerialization() throws IOException {
+		ACLMessage msg = new ACLMessage(Performative.PROPOSE);
+		msg.sender = sender;
+		msg.receivers.add(receiver);
+		msg.content = "content";
+		msg.userArgs.put("key", 1);
+		JavaSerializationCodec java = new JavaSerializationCodec();
+		assertMessageEquals(java.decode(java.encode(msg)), roundTrip(msg));
+	}
+
+	@Test
+	public void testSubclassesNotSupported() {
+		ACLMessage msg = new ACLMessage() {
+			private static final long serialVersionUID = 1L;
+		};
+		assertTrue(!codec.supports(msg));
+		assertTrue(codec.supports(new ACLMessage()));
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnknownVersion() throws IOException {
+		byte[] data = codec.encode(new ACLMessage());
+		data[0] = 99;
+		codec.decode(data);
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncated() throws IOException {
+		ACLMessage msg = new ACLMessage(Performative.INFORM);
+		msg.sender = sender;
+		msg.content = "content";
+		byte[] data = codec.encode(msg);
+		codec.decode(Arrays.copyOf(data, data.length - 3));
+	}
+
+	@Test
+	public void testCodecsRegistry() {
+		assertEquals(BinaryCodec.NAME, MessageCodecs.get(BinaryCodec.NAME).getName());
+		assertEquals(JavaSerializationCodec.NAME, MessageCodecs.get(JavaSerializationCodec.NAME)
+				.getName());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownCodec() {
+		MessageCodecs.get("unknown");
+	}
+
+	private ACLMessage roundTrip(ACLMessage msg) throws IOException {
+		return codec.decode(codec.encode(msg));
+	}
+
+	private void assertMessageEquals(ACLMessage expected, ACLMessage actual) {
+		assertEquals(expected.performative, actual.performative);
+		assertAidEquals(expected.sender, actual.sender);
+		assertEquals(expected.receivers.size(), actual.receivers.size());
+		for (int i = 0; i < expected.receivers.size(); i++)
+			assertAidEquals(expected.receivers.get(i), actual.receivers.get(i));
+		assertAidEquals(expected.replyTo, actual.replyTo);
+		assertEquals(expected.content, actual.content);
+		assertEquals(expected.language, actual.language);
+		assertEquals(expected.encoding, actual.encoding);
+		assertEquals(expected.ontology, actual.ontology);
+		assertEquals(expected.protocol, actual.protocol);
+		assertEquals(expected.conversationId, actual.conversationId);
+		assertEquals(expected.replyWith, actual.replyWith);
+		assertEquals(expected.inReplyTo, actual.inReplyTo);
+		assertEquals(expected.replyBy, actual.replyBy);
+		assertEquals(expected.priority, actual.priority);
+		assertEquals(expected.userArgs, actual.userArgs);
+	}
+
+	private void assertAidEquals(AID expected, AID actual) {
+		assertEquals(expected, actual);
+		if (expected != null) {
+			assertEquals(expected.getName(), actual.getName());
+			assertEquals(expected.getHost(), actual.getHost());
+			assertEquals(expected.getAgClass(), actual.getAgClass());
+			assertEquals(expected.getAgClass().getPath(), actual.getAgClass().getPath());
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction.codec;
+
+import java.io.IOException;
+import siebog.agents.AID;
+import siebog.agents.AgentClass;
+import siebog.interaction.ACLMessage;
+import siebog.interaction.Performative;
+
+/**
+ * Compares message size and (de)serialization time of the binary codec with Java serialization,
+ * which is what JMS object messages use.
+ */
+public class CodecBenchmark {
+	private static final int WARMUP = 50_000;
+	private static final int ITERATIONS = 200_000;
+
+	public static void main(String[] args) throws IOException {
+		ACLMessage msg = createMessage(args.length > 0 ? Integer.parseInt(args[0]) : 1);
+		MessageCodec[] codecs = { new JavaSerializationCodec(), new BinaryCodec() };
+		for (MessageCodec codec : codecs) {
+			run(codec, msg, WARMUP);
+		}
+		for (MessageCodec codec : codecs) {
+			run(codec, msg, ITERATIONS);
+		}
+	}
+
+	private static ACLMessage createMessage(int numReceivers) {
+		AgentClass agClass = AgentClass.forSiebogEjb(siebog.agents.xjaf.aco.tsp.Ant.class);
+		ACLMessage msg = new ACLMessage(Performative.REQUEST);
+		msg.sender = new AID("Ant-1", agClass);
+		for (int i = 0; i < numReceivers; i++)
+			msg.receivers.add(new AID("Map" + i, agClass));
+		msg.content = "PheromoneLevels? 12 3 4 5 6 7 8 9 10 11 13 14 15";
+		msg.replyWith = "MapSize";
+		msg.userArgs.put("iteration", 42);
+		return msg;
+	}
+
+	private static void run(MessageCodec codec, ACLMessage msg, int iterations) throws IOException {
+		byte[] data = codec.encode(msg);
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			data = codec.encode(msg);
+		long encode = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			codec.decode(data);
+		long decode = System.nanoTime() - start;
+		System.out.printf("%-8s %6d bytes, encode %6d ns/op, decode %6d ns/op%n", codec.getName(),
+				data.length, encode / iterations, decode / iterations);
+	}
+}
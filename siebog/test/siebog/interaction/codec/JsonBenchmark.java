@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction.codec;
+
+import org.hornetq.utils.json.JSONException;
+import siebog.agents.AID;
+import siebog.agents.AgentClass;
+import siebog.interaction.ACLMessage;
+import siebog.interaction.Performative;
+
+/**
+ * Compares the streaming JSON conversion of ACL messages with the original org.json based one.
+ */
+public class JsonBenchmark {
+	private static final int WARMUP = 50_000;
+	private static final int ITERATIONS = 200_000;
+
+	public static void main(String[] args) throws JSONException {
+		ACLMessage msg = createMessage(args.length > 0 ? Integer.parseInt(args[0]) : 1);
+		runLegacy(msg, WARMUP);
+		runStreaming(msg, WARMUP);
+		runLegacy(msg, ITERATIONS);
+		runStreaming(msg, ITERATIONS);
+	}
+
+	private static ACLMessage createMessage(int numReceivers) {
+		AgentClass agClass = AgentClass.forSiebogEjb(siebog.agents.xjaf.aco.tsp.Ant.class);
+		ACLMessage msg = new ACLMessage(Performative.REQUEST);
+		msg.sender = new AID("Ant-1", agClass);
+		for (int i = 0; i < numReceivers; i++)
+			msg.receivers.add(new AID("Map" + i, agClass));
+		msg.content = "PheromoneLevels? 12 3 4 5 6 7 8 9 10 11 13 14 15";
+		msg.replyWith = "MapSize";
+		msg.userArgs.put("iteration", 42);
+		return msg;
+	}
+
+	private static void runLegacy(ACLMessage msg, int iterations) throws JSONException {
+		String json = LegacyJson.toJson(msg);
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			json = LegacyJson.toJson(msg);
+		long write = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			LegacyJson.fromJson(json);
+		long read = System.nanoTime() - start;
+		print("org.json", json, write / iterations, read / iterations);
+	}
+
+	private static void runStreaming(ACLMessage msg, int iterations) throws JSONException {
+		String json = JsonCodec.toJson(msg);
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			json = JsonCodec.toJson(msg);
+		long write = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			new ACLMessage(json);
+		long read = System.nanoTime() - start;
+		print("stream", json, write / iterations, read / iterations);
+	}
+
+	private static void print(String name, String json, long write, long read) {
+		System.out.printf("%-8s %6d chars, write %6d ns/op, read %6d ns/op%n", name, json.length(),
+				write, read);
+	}
+}
@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import java.io.IOException;
+import org.hornetq.utils.json.JSONException;
+import org.junit.Test;
+import siebog.agents.AID;
+import siebog.agents.AgentClass;
+import siebog.interaction.ACLMessage;
+import siebog.interaction.Performative;
+
+public class JsonCodecTest {
+	private static final AgentClass AG_CLASS = new AgentClass("siebog", "Ping");
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		ACLMessage msg = createMessage();
+		assertMessageEquals(msg, new JsonCodec().decode(new JsonCodec().encode(msg)));
+	}
+
+	@Test
+	public void testReadsLegacyFormat() throws JSONException {
+		ACLMessage msg = createMessage();
+		assertMessageEquals(msg, new ACLMessage(LegacyJson.toJson(msg)));
+	}
+
+	@Test
+	public void testLegacyReadsNewFormat() throws JSONException {
+		ACLMessage msg = createMessage();
+		assertMessageEquals(msg, LegacyJson.fromJson(msg.toString()));
+	}
+
+	@Test
+	public void testMissingStringsAreEmpty() throws JSONException {
+		ACLMessage msg = new ACLMessage(" { \"performative\" : \"inform\" } ");
+		assertEquals(Performative.INFORM, msg.performative);
+		assertNull(msg.sender);
+		assertEquals(0, msg.receivers.size());
+		assertEquals("", msg.content);
+		assertEquals("", msg.replyWith);
+		assertNull(msg.coalesceKey);
+	}
+
+	@Test
+	public void testSkipsUnknownProperties() throws JSONException {
+		ACLMessage msg = new ACLMessage("{\"extra\":{\"a\":[1,\"}\"]},\"performative\":\"CANCEL\","
+				+ "\"X-list\":[1,2],\"content\":null}");
+		assertEquals(Performative.CANCEL, msg.performative);
+		assertEquals("[1,2]", msg.userArgs.get("list"));
+		assertEquals("", msg.content);
+	}
+
+	@Test(expected = JSONException.class)
+	public void testMissingPerformative() throws JSONException {
+		new ACLMessage("{\"content\":\"x\"}");
+	}
+
+	@Test(expected = JSONException.class)
+	public void testMalformed() throws JSONException {
+		new ACLMessage("{\"performative\":\"INFORM\",\"content\":\"x}");
+	}
+
+	private static ACLMessage createMessage() {
+		ACLMessage msg = new ACLMessage(Performative.REQUEST);
+		msg.sender = new AID("sender", AG_CLASS);
+		msg.receivers.add(new AID("r1", AG_CLASS));
+		msg.receivers.add(new AID("r2", "other", AG_CLASS));
+		msg.replyTo = new AID("replyTo", AG_CLASS);
+		msg.content = "line 1\nline 2\t\"quoted\" \\ \u0001 \u2028 \u00e9";
+		msg.language = "en";
+		msg.encoding = "";
+		msg.ontology = "o";
+		msg.protocol = "p";
+		msg.conversationId = "c";
+		msg.replyWith = "rw";
+		msg.inReplyTo = "irt";
+		msg.replyBy = 1234567890123L;
+		msg.priority = 7;
+		msg.coalesceKey = "k";
+		msg.userArgs.put("int", 42);
+		msg.userArgs.put("long", 1L << 40);
+		msg.userArgs.put("double", 1.5);
+		msg.userArgs.put("bool", true);
+		msg.userArgs.put("str", "s");
+		return msg;
+	}
+
+	private static void assertMessageEquals(ACLMessage expected, ACLMessage actual) {
+		assertEquals(expected.performative, actual.performative);
+		assertEquals(expected.sender, actual.sender);
+		assertEquals(expected.sender.getAgClass(), actual.sender.getAgClass());
+		assertEquals(expected.receivers, actual.receivers);
+		assertEquals(expected.replyTo, actual.replyTo);
+		assertEquals(expected.content, actual.content);
+		assertEquals(expected.language, actual.language);
+		assertEquals(expected.encoding, actual.encoding);
+		assertEquals(expected.ontology, actual.ontology);
+		assertEquals(expected.protocol, actual.protocol);
+		assertEquals(expected.conversationId, actual.conversationId);
+		assertEquals(expected.replyWith, actual.replyWith);
+		assertEquals(expected.inReplyTo, actual.inReplyTo);
+		assertEquals(expected.replyBy, actual.replyBy);
+		assertEquals(expected.priority, actual.priority);
+		assertEquals(expected.coalesceKey, actual.coalesceKey);
+		assertEquals(expected.userArgs, actual.userArgs);
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.interaction.codec;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import org.hornetq.utils.json.JSONArray;
+import org.hornetq.utils.json.JSONException;
+import org.hornetq.utils.json.JSONObject;
+import siebog.agents.AID;
+import siebog.interaction.ACLMessage;
+import siebog.interaction.MessagePriority;
+import siebog.interaction.Performative;
+
+/**
+ * The original org.json based conversion of ACL messages, kept as a reference for compatibility
+ * tests and benchmarks.
+ */
+abstract class LegacyJson {
+	public static String toJson(ACLMessage msg) {
+		JSONObject obj = new JSONObject();
+		try {
+			obj.put("performative", msg.performative);
+			obj.put("sender", msg.sender);
+			obj.put("receivers", new JSONArray(msg.receivers));
+			obj.put("replyTo", msg.replyTo);
+			obj.put("content", msg.content);
+			obj.put("language", msg.language);
+			obj.put("encoding", msg.encoding);
+			obj.put("ontology", msg.ontology);
+			obj.put("protocol", msg.protocol);
+			obj.put("conversationId", msg.conversationId);
+			obj.put("replyWith", msg.replyWith);
+			obj.put("inReplyTo", msg.inReplyTo);
+			obj.put("replyBy", msg.replyBy);
+			if (msg.priority != MessagePriority.UNSET)
+				obj.put("priority", msg.priority);
+			if (msg.coalesceKey != null)
+				obj.put("coalesceKey", msg.coalesceKey);
+			for (Entry<String, Serializable> e : msg.userArgs.entrySet())
+				obj.put(ACLMessage.USERARG_PREFIX + e.getKey(), e.getValue());
+		} catch (JSONException ex) {
+		}
+		return obj.toString();
+	}
+
+	@SuppressWarnings("unchecked")
+	public static ACLMessage fromJson(String json) throws JSONException {
+		JSONObject obj = new JSONObject(json);
+		ACLMessage msg = new ACLMessage(Performative.valueOf(obj.getString("performative")
+				.toUpperCase()));
+		String str = obj.optString("sender");
+		if (str != null && !str.isEmpty())
+			msg.sender = new AID(str);
+		JSONArray arr = obj.optJSONArray("receivers");
+		if (arr != null && arr.length() > 0)
+			for (int i = 0; i < arr.length(); i++)
+				msg.receivers.add(new AID(arr.getString(i)));
+		str = obj.optString("replyTo");
+		if (str != null && !str.isEmpty())
+			msg.replyTo = new AID(str);
+		msg.content = obj.optString("content");
+		msg.language = obj.optString("language");
+		msg.encoding = obj.optString("encoding");
+		msg.ontology = obj.optString("ontology");
+		msg.protocol = obj.optString("protocol");
+		msg.conversationId = obj.optString("conversationId");
+		msg.replyWith = obj.optString("replyWith");
+		msg.inReplyTo = obj.optString("inReplyTo");
+		msg.replyBy = obj.optLong("replyBy");
+		msg.priority = obj.optInt("priority", MessagePriority.UNSET);
+		str = obj.optString("coalesceKey");
+		if (str != null && !str.isEmpty())
+			msg.coalesceKey = str;
+		Iterator<String> i = obj.keys();
+		while (i.hasNext()) {
+			String key = i.next();
+			if (key.startsWith(ACLMessage.USERARG_PREFIX))
+				msg.userArgs.put(key.substring(ACLMessage.USERARG_PREFIX.length()),
+						(Serializable) obj.get(key));
+		}
+		return msg;
+	}
+}
@@ -20,9 +20,15 @@
 
 package siebog.test.framework.senders;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import siebog.interaction.ACLMessage;
+import siebog.interaction.DeliveryReceipt;
 import siebog.interaction.MessageManager;
 import siebog.utils.ObjectFactory;
 
@@ -32,6 +38,9 @@ import siebog.utils.ObjectFactory;
 public class ParallelSender implements MsgSender {
 	private ConcurrentLinkedDeque<ACLMessage> messages;
 	private int numThreads = 1;
+	// number of posts each thread keeps in flight before waiting for the oldest one
+	private int maxInFlight = 64;
+	private final AtomicInteger failures = new AtomicInteger();
 
 	public ParallelSender() {
 		messages = new ConcurrentLinkedDeque<>();
@@ -57,6 +66,21 @@ public class ParallelSender implements MsgSender {
 		this.numThreads = numThreads;
 	}
 
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * @return Number of messages that could not be posted.
+	 */
+	public int getFailures() {
+		return failures.get();
+	}
+
 	private Thread[] createThreads() {
 		Thread[] threads = new Thread[numThreads];
 		for (int i = 0; i < numThreads; i++) {
@@ -85,13 +109,30 @@ public class ParallelSender implements MsgSender {
 			@Override
 			public void run() {
 				MessageManager mngr = ObjectFactory.getMessageManager();
+				Deque<Future<DeliveryReceipt>> inFlight = new ArrayDeque<>();
 				ACLMessage msg = messages.poll();
 				while (msg != null && !Thread.interrupted()) {
 					msg.replyWith = MessageManager.REPLY_WITH_TEST;
-					mngr.post(msg);
+					inFlight.add(mngr.postAsync(msg));
+					if (inFlight.size() >= maxInFlight) {
+						await(inFlight.poll());
+					}
 					msg = messages.poll();
 				}
+				while (!inFlight.isEmpty()) {
+					await(inFlight.poll());
+				}
 			}
 		};
 	}
+
+	private void await(Future<DeliveryReceipt> receipt) {
+		try {
+			receipt.get();
+		} catch (ExecutionException ex) {
+			failures.incrementAndGet();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
 }
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class DedupWindowTest {
+	@Test
+	public void testDuplicateWithinWindow() {
+		DedupWindow window = new DedupWindow(1000, 100);
+		assertTrue(window.add("a", 0));
+		assertTrue(window.add("b", 10));
+		assertFalse(window.add("a", 999));
+		assertEquals(2, window.size());
+	}
+
+	@Test
+	public void testExpiry() {
+		DedupWindow window = new DedupWindow(1000, 100);
+		window.add("a", 0);
+		window.add("b", 500);
+		assertTrue(window.add("a", 1000));
+		assertFalse(window.add("b", 1400));
+		assertEquals(2, window.size());
+		assertTrue(window.add("c", 5000));
+		assertEquals(1, window.size());
+	}
+
+	@Test
+	public void testBounded() {
+		DedupWindow window = new DedupWindow(1000, 3);
+		for (int i = 0; i < 10; i++)
+			assertTrue(window.add("k" + i, i));
+		assertEquals(3, window.size());
+		// the oldest keys are forgotten first
+		assertTrue(window.add("k0", 20));
+		assertFalse(window.add("k9", 20));
+	}
+
+	@Test
+	public void testRemove() {
+		DedupWindow window = new DedupWindow(1000, 100);
+		window.add("a", 0);
+		window.remove("a");
+		assertTrue(window.add("a", 100));
+		assertFalse(window.add("a", 200));
+		// the stale entry of the first add must not expire the second one early
+		assertFalse(window.add("a", 1050));
+		assertTrue(window.add("a", 1100));
+	}
+
+	@Test
+	public void testRemoveWhenFull() {
+		DedupWindow window = new DedupWindow(1000, 3);
+		window.add("x", 0);
+		window.add("a", 1);
+		window.remove("a");
+		window.add("b", 2);
+		window.add("a", 3);
+		window.add("c", 4);
+		// evicts "b", the oldest key, not "a" through the slot of the removed copy
+		window.add("d", 5);
+		assertEquals(3, window.size());
+		assertFalse(window.add("a", 6));
+	}
+}
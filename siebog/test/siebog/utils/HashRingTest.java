@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class HashRingTest {
+	private static final int KEYS = 10_000;
+
+	@Test
+	public void testEmpty() {
+		assertNull(new HashRing(Collections.<String> emptySet()).get("a"));
+	}
+
+	@Test
+	public void testBalanced() {
+		HashRing ring = new HashRing(Arrays.asList("node1", "node2", "node3", "node4"));
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < KEYS; i++) {
+			String node = ring.get("Agent" + i + "@xjaf");
+			Integer n = counts.get(node);
+			counts.put(node, n == null ? 1 : n + 1);
+		}
+		assertEquals(4, counts.size());
+		for (int n : counts.values())
+			assertTrue("Unbalanced: " + counts, n > KEYS / 4 / 2 && n < KEYS / 4 * 2);
+	}
+
+	@Test
+	public void testOnlyKeysOfRemovedNodeMove() {
+		HashRing before = new HashRing(Arrays.asList("node1", "node2", "node3"));
+		HashRing after = new HashRing(Arrays.asList("node1", "node3"));
+		for (int i = 0; i < KEYS; i++) {
+			String key = "Agent" + i + "@xjaf";
+			String node = before.get(key);
+			if (!node.equals("node2"))
+				assertEquals(node, after.get(key));
+		}
+	}
+}
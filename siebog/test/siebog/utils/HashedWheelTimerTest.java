@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import siebog.utils.HashedWheelTimer.Timeout;
+
+public class HashedWheelTimerTest {
+	private static final long START = 1000000;
+	private HashedWheelTimer timer;
+	private List<String> fired;
+
+	@Before
+	public void setUp() {
+		timer = new HashedWheelTimer(10, 8, START);
+		fired = new ArrayList<>();
+	}
+
+	@Test
+	public void testExpiresOnlyAfterDeadline() {
+		timer.scheduleAt(task("a"), START + 25);
+		timer.advance(START + 20);
+		assertTrue(fired.isEmpty());
+		timer.advance(START + 30);
+		assertEquals(1, fired.size());
+		timer.advance(START + 100);
+		assertEquals(1, fired.size());
+	}
+
+	@Test
+	public void testCancelledAreRemovedEarly() {
+		List<Timeout> timeouts = new ArrayList<>();
+		for (int i = 0; i < 100; i++)
+			timeouts.add(timer.scheduleAt(task("t" + i), START + 100000 + i));
+		timer.advance(START);
+		assertEquals(100, timer.size());
+		for (int i = 0; i < 100; i += 2)
+			assertTrue(timeouts.get(i).cancel());
+		timer.advance(START + 10);
+		assertEquals(50, timer.size());
+		assertFalse(timeouts.get(0).cancel());
+		for (int i = 1; i < 100; i += 2)
+			timeouts.get(i).cancel();
+		timer.advance(START + 20);
+		assertEquals(0, timer.size());
+		assertTrue(fired.isEmpty());
+	}
+
+	@Test
+	public void testDelayLongerThanWheel() {
+		// 8 buckets of 10ms, so this timeout needs several rounds
+		timer.scheduleAt(task("a"), START + 275);
+		for (long t = START; t < START + 280; t += 10) {
+			timer.advance(t);
+			assertTrue(fired.isEmpty());
+		}
+		timer.advance(START + 280);
+		assertEquals(1, fired.size());
+	}
+
+	@Test
+	public void testCascadesThroughSeveralWheels() {
+		// 8 buckets per wheel, so this needs the fourth wheel
+		final long delay = 10 * (8 * 8 * 8 + 3 * 8 * 8 + 5 * 8 + 7);
+		Timeout t = timer.scheduleAt(task("a"), START + delay);
+		timer.scheduleAt(task("b"), START + delay + 10);
+		for (long now = START; now < START + delay; now += 10)
+			timer.advance(now);
+		assertTrue(fired.isEmpty());
+		assertFalse(t.isExpired());
+		timer.advance(START + delay);
+		assertEquals("[a]", fired.toString());
+		timer.advance(START + delay + 10);
+		assertEquals("[a, b]", fired.toString());
+	}
+
+	@Test
+	public void testAdvanceOverManyTicks() {
+		for (int i = 1; i <= 100; i++)
+			timer.scheduleAt(task(Integer.toString(i)), START + i * 37);
+		timer.advance(START + 37 * 50);
+		assertEquals(50, fired.size());
+		timer.advance(START + 37 * 100 + 10);
+		assertEquals(100, fired.size());
+		assertEquals(0, timer.size());
+	}
+
+	@Test
+	public void testOrderOfExpiry() {
+		timer.scheduleAt(task("c"), START + 90);
+		timer.scheduleAt(task("a"), START + 10);
+		timer.scheduleAt(task("b"), START + 40);
+		for (long t = START; t <= START + 100; t += 10)
+			timer.advance(t);
+		assertEquals("[a, b, c]", fired.toString());
+	}
+
+	@Test
+	public void testCancel() {
+		Timeout t1 = timer.scheduleAt(task("a"), START + 50);
+		Timeout t2 = timer.scheduleAt(task("b"), START + 50);
+		timer.advance(START + 10);
+		assertTrue(t1.cancel());
+		assertFalse(t1.cancel());
+		timer.advance(START + 50);
+		assertEquals("[b]", fired.toString());
+		assertTrue(t2.isExpired());
+		assertFalse(t2.cancel());
+		assertEquals(0, timer.size());
+	}
+
+	@Test
+	public void testPastDeadlineExpiresOnNextTick() {
+		timer.advance(START + 100);
+		timer.scheduleAt(task("a"), START + 5);
+		timer.advance(START + 105);
+		assertTrue(fired.isEmpty());
+		timer.advance(START + 110);
+		assertEquals(1, fired.size());
+	}
+
+	@Test
+	public void testFailingTaskDoesNotStopOthers() {
+		timer.scheduleAt(new Runnable() {
+			@Override
+			public void run() {
+				throw new IllegalStateException();
+			}
+		}, START + 10);
+		timer.scheduleAt(task("a"), START + 10);
+		timer.advance(START + 10);
+		assertEquals(1, fired.size());
+	}
+
+	private Runnable task(final String name) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				fired.add(name);
+			}
+		};
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one 
+ * or more contributor license agreements. See the NOTICE file 
+ * distributed with this work for additional information regarding 
+ * copyright ownership. The ASF licenses this file to you under 
+ * the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may 
+ * obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the License is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, 
+ * either express or implied. 
+ * 
+ * See the License for the specific language governing permissions 
+ * and limitations under the License.
+ */
+
+package siebog.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import siebog.agents.AID;
+import siebog.agents.AgentClass;
+
+public class SnapshotStoreTest {
+	private static final AgentClass AG_CLASS = new AgentClass("siebog", "Learner");
+
+	@Test
+	public void testWriteReadDelete() throws IOException {
+		SnapshotStore store = new SnapshotStore(Files.createTempDirectory("snapshots"));
+		AID aid = new AID("a/b?c", AG_CLASS);
+		assertNull(store.read(aid));
+		store.write(aid, new byte[] { 1, 2, 3 });
+		assertArrayEquals(new byte[] { 1, 2, 3 }, store.read(aid));
+		store.write(aid, new byte[] { 4 });
+		assertArrayEquals(new byte[] { 4 }, store.read(aid));
+		store.delete(aid);
+		assertNull(store.read(aid));
+		// deleting twice is fine
+		store.delete(aid);
+	}
+
+	@Test
+	public void testSeparateAgents() throws IOException {
+		Path dir = Files.createTempDirectory("snapshots");
+		SnapshotStore store = new SnapshotStore(dir.resolve("node"));
+		AID a = new AID("a", AG_CLASS);
+		AID b = new AID("b", AG_CLASS);
+		store.write(a, new byte[] { 1 });
+		store.write(b, new byte[] { 2 });
+		assertArrayEquals(new byte[] { 1 }, store.read(a));
+		assertArrayEquals(new byte[] { 2 }, new SnapshotStore(dir.resolve("node")).read(b));
+	}
+
+	@Test
+	public void testClear() throws IOException {
+		SnapshotStore store = new SnapshotStore(Files.createTempDirectory("snapshots"));
+		AID a = new AID("a", AG_CLASS);
+		store.write(a, new byte[] { 1 });
+		store.write(new AID("b", AG_CLASS), new byte[] { 2 });
+		assertEquals(2, store.clear());
+		assertNull(store.read(a));
+		assertEquals(0, store.clear());
+	}
+}
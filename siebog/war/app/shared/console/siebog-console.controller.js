@@ -30,16 +30,25 @@
 			} else if(msg.type === "ADD") {
 				xjaf.agents.array.push(JSON.parse(msg.data));
 			} else if(msg.type === "REMOVE") {
-				var agent = JSON.parse(msg.data);
-				for(var i = 0, n = xjaf.agents.array.length; i < n; i++) {
-					if(agent.str === xjaf.agents.array[i].str) {
-						xjaf.agents.array.splice(i, 1);
-						break;
-					}
-				}
+				removeAgent(JSON.parse(msg.data));
+			} else if(msg.type === "ADD_ALL") {
+				JSON.parse(msg.data).forEach(function(agent) {
+					xjaf.agents.array.push(agent);
+				});
+			} else if(msg.type === "REMOVE_ALL") {
+				JSON.parse(msg.data).forEach(removeAgent);
 			}
 		});
 
+		function removeAgent(agent) {
+			for(var i = 0, n = xjaf.agents.array.length; i < n; i++) {
+				if(agent.str === xjaf.agents.array[i].str) {
+					xjaf.agents.array.splice(i, 1);
+					break;
+				}
+			}
+		}
+
 		socket.onOpen(function() {
 			console.log("WebSocket for console connection opened.");
 		});